@@ -0,0 +1,51 @@
+package com.market.client;
+
+import java.util.concurrent.TimeUnit;
+
+//AIMD-предел одновременных вызовов: +1 за быстрый ответ при загруженном пределе,
+//умножение на backoffRatio за таймаут, отказ или ответ медленнее порога задержки
+public class AdaptiveConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThreshold, TimeUnit unit, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public synchronized boolean tryAcquire() {
+        if(inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void release(long latencyNanos, boolean dropped) {
+        //Предел растет, только если он действительно использовался
+        boolean utilized = inFlight * 2 >= (int) limit;
+        inFlight--;
+        if(dropped || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if(utilized) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,130 @@
+package com.market.client;
+
+import com.market.dto.ProductDTO;
+import com.market.dto.StockReservationDTO;
+import com.market.exception.api.ApiException;
+import com.market.exception.api.InsufficientStockException;
+import com.market.exception.api.ProductNotFoundException;
+import com.market.exception.api.StorageUnavailableException;
+import com.market.grpc.storage.Product;
+import com.market.grpc.storage.ProductIdRequest;
+import com.market.grpc.storage.ReservationKey;
+import com.market.grpc.storage.StockBatch;
+import com.market.grpc.storage.StockLine;
+import com.market.grpc.storage.StorageGrpc;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.quarkus.grpc.GrpcClient;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//Реализация StorageClient поверх gRPC; ошибки склада приходят статусами, а не текстом ответа
+@ApplicationScoped
+@Typed(GrpcStorageClient.class)
+public class GrpcStorageClient implements StorageClient {
+    private static final Metadata.Key<String> PRODUCT_ID =
+            Metadata.Key.of("product-id", Metadata.ASCII_STRING_MARSHALLER);
+
+    @GrpcClient("storage")
+    StorageGrpc.StorageBlockingStub stub;
+
+    @ConfigProperty(name = "storage.client.grpc.timeout", defaultValue = "5s")
+    Duration timeout;
+
+    public GrpcStorageClient() {}
+
+    //Для запуска вне CDI, например в бенчмарке
+    public GrpcStorageClient(StorageGrpc.StorageBlockingStub stub, Duration timeout) {
+        this.stub = stub;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public ProductDTO getProduct(Long id) {
+        Product product = call(() -> stub().getProduct(ProductIdRequest.newBuilder().setId(id).build()));
+        return new ProductDTO(
+                product.getId(),
+                product.getName(),
+                new ProductDTO.CategoryDTO(product.getCategoryId(), product.getCategoryName()),
+                product.getAmount(),
+                product.getDescription(),
+                new BigDecimal(product.getPrice()));
+    }
+
+    @Override
+    public boolean hasStock(Long id, int amount) {
+        return call(() -> stub().hasStock(line(id, amount))).getHasStock();
+    }
+
+    @Override
+    public void orderProcess(Long id, int amount) {
+        call(() -> stub().orderProcess(line(id, amount)));
+    }
+
+    @Override
+    public void orderProcessCancel(Long id, int amount) {
+        call(() -> stub().orderProcessCancel(line(id, amount)));
+    }
+
+    @Override
+    public void reserveBatch(String reservationKey, List<StockReservationDTO> reservations) {
+        call(() -> stub().reserveBatch(batch(reservations).toBuilder().setReservationKey(reservationKey).build()));
+    }
+
+    @Override
+    public void releaseBatch(List<StockReservationDTO> reservations) {
+        call(() -> stub().releaseBatch(batch(reservations)));
+    }
+
+    @Override
+    public void releaseReservation(String reservationKey) {
+        call(() -> stub().releaseReservation(ReservationKey.newBuilder().setKey(reservationKey).build()));
+    }
+
+    private StorageGrpc.StorageBlockingStub stub() {
+        return stub.withDeadlineAfter(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static <T> T call(Supplier<T> request) {
+        try {
+            return request.get();
+        } catch (StatusRuntimeException e) {
+            throw toApiException(e);
+        }
+    }
+
+    private static RuntimeException toApiException(StatusRuntimeException e) {
+        Long productId = productId(e);
+        return switch (e.getStatus().getCode()) {
+            case NOT_FOUND -> new ProductNotFoundException(productId);
+            case FAILED_PRECONDITION -> new InsufficientStockException(productId);
+            case INVALID_ARGUMENT -> new ApiException(e.getStatus().getDescription(), 400);
+            case DEADLINE_EXCEEDED, UNAVAILABLE -> new StorageUnavailableException("Склад недоступен: " + e.getStatus(), e);
+            default -> new ApiException("Unexpected error: " + e.getStatus(), 500);
+        };
+    }
+
+    private static Long productId(StatusRuntimeException e) {
+        Metadata trailers = Status.trailersFromThrowable(e);
+        String value = trailers == null ? null : trailers.get(PRODUCT_ID);
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    private static StockLine line(Long id, int amount) {
+        return StockLine.newBuilder().setProductId(id).setAmount(amount).build();
+    }
+
+    private static StockBatch batch(List<StockReservationDTO> reservations) {
+        StockBatch.Builder batch = StockBatch.newBuilder();
+        reservations.forEach(reservation -> batch.addLines(line(reservation.productId, reservation.amount)));
+        return batch.build();
+    }
+}
@@ -0,0 +1,235 @@
+package com.market.client;
+
+import com.market.dto.ProductDTO;
+import com.market.dto.StockReservationDTO;
+import com.market.exception.api.StorageOverloadedException;
+import com.market.exception.api.StorageUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.faulttolerance.api.Guard;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//Вызовы склада с таймаутом, общим circuit breaker, bulkhead и адаптивным пределом одновременных запросов.
+//Отказ склада (5xx, таймаут, обрыв соединения) открывает breaker, ошибки товара и остатка - нет
+@ApplicationScoped
+@Typed(GuardedStorageClient.class)
+public class GuardedStorageClient implements StorageClient {
+    private static final Logger logger = LoggerFactory.getLogger(GuardedStorageClient.class);
+
+    private static final String BREAKER = "storage";
+
+    @Inject
+    StorageClientProducer transport;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    @RestClient
+    ProductCardClient productCardClient;
+
+    @ConfigProperty(name = "storage.client.limit.initial", defaultValue = "20")
+    int initialLimit;
+
+    @ConfigProperty(name = "storage.client.limit.min", defaultValue = "4")
+    int minLimit;
+
+    @ConfigProperty(name = "storage.client.limit.max", defaultValue = "200")
+    int maxLimit;
+
+    @ConfigProperty(name = "storage.client.limit.latency-threshold", defaultValue = "500ms")
+    Duration latencyThreshold;
+
+    @ConfigProperty(name = "storage.client.limit.backoff-ratio", defaultValue = "0.9")
+    double backoffRatio;
+
+    @ConfigProperty(name = "storage.client.timeout.check", defaultValue = "1s")
+    Duration checkTimeoutValue;
+
+    @ConfigProperty(name = "storage.client.timeout.read", defaultValue = "2s")
+    Duration readTimeoutValue;
+
+    @ConfigProperty(name = "storage.client.timeout.write", defaultValue = "3s")
+    Duration writeTimeoutValue;
+
+    @ConfigProperty(name = "storage.client.timeout.batch", defaultValue = "5s")
+    Duration batchTimeoutValue;
+
+    @ConfigProperty(name = "storage.client.breaker.request-volume-threshold", defaultValue = "20")
+    int breakerRequestVolume;
+
+    @ConfigProperty(name = "storage.client.breaker.failure-ratio", defaultValue = "0.5")
+    double breakerFailureRatio;
+
+    @ConfigProperty(name = "storage.client.breaker.delay", defaultValue = "5s")
+    Duration breakerDelay;
+
+    @ConfigProperty(name = "storage.client.breaker.success-threshold", defaultValue = "3")
+    int breakerSuccessThreshold;
+
+    @ConfigProperty(name = "storage.client.bulkhead", defaultValue = "100")
+    int bulkheadLimit;
+
+    private StorageClient delegate;
+    private AdaptiveConcurrencyLimiter limiter;
+    //Один breaker и bulkhead на все методы: отказ склада, замеченный любым вызовом, закрывает все
+    private Guard breaker;
+    private Guard checkTimeout;
+    private Guard readTimeout;
+    private Guard writeTimeout;
+    private Guard batchTimeout;
+
+    public GuardedStorageClient() {}
+
+    //Для запуска вне CDI: breaker и таймауты не создаются, работает только предел
+    public GuardedStorageClient(StorageClient delegate, AdaptiveConcurrencyLimiter limiter) {
+        this(delegate, null, limiter);
+    }
+
+    public GuardedStorageClient(StorageClient delegate, ProductCardClient productCardClient, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.productCardClient = productCardClient;
+        this.limiter = limiter;
+    }
+
+    @PostConstruct
+    void init() {
+        delegate = transport.transportClient();
+        breaker = Guard.create()
+                .withCircuitBreaker()
+                    .name(BREAKER)
+                    .requestVolumeThreshold(breakerRequestVolume)
+                    .failureRatio(breakerFailureRatio)
+                    .delay(breakerDelay.toMillis(), ChronoUnit.MILLIS)
+                    .successThreshold(breakerSuccessThreshold)
+                    .failOn(List.of(StorageUnavailableException.class, TimeoutException.class, ProcessingException.class))
+                    .done()
+                .withBulkhead()
+                    .limit(bulkheadLimit)
+                    .done()
+                .build();
+        checkTimeout = timeout(checkTimeoutValue);
+        readTimeout = timeout(readTimeoutValue);
+        writeTimeout = timeout(writeTimeoutValue);
+        batchTimeout = timeout(batchTimeoutValue);
+        limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                latencyThreshold.toNanos(), TimeUnit.NANOSECONDS, backoffRatio);
+        Gauge.builder("storage.client.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Текущий предел одновременных запросов к складу")
+                .register(meterRegistry);
+        Gauge.builder("storage.client.in-flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Запросы к складу в процессе")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ProductDTO getProduct(Long id) {
+        return guarded(readTimeout, () -> delegate.getProduct(id));
+    }
+
+    //Условный GET карточки есть только у REST: по gRPC карточку читает getProduct.
+    //Идет через те же таймаут, breaker, bulkhead и предел, что и остальные вызовы склада
+    public Response getProductConditional(Long id, String etag) {
+        return guarded(readTimeout, () -> productCardClient.getProductConditional(id, etag));
+    }
+
+    @Override
+    public boolean hasStock(Long id, int amount) {
+        return guarded(checkTimeout, () -> delegate.hasStock(id, amount));
+    }
+
+    @Override
+    public void orderProcess(Long id, int amount) {
+        guarded(writeTimeout, () -> {
+            delegate.orderProcess(id, amount);
+            return null;
+        });
+    }
+
+    @Override
+    public void orderProcessCancel(Long id, int amount) {
+        guarded(writeTimeout, () -> {
+            delegate.orderProcessCancel(id, amount);
+            return null;
+        });
+    }
+
+    //Пакет идет одной транзакцией на складе, поэтому таймаут больше
+    @Override
+    public void reserveBatch(String reservationKey, List<StockReservationDTO> reservations) {
+        guarded(batchTimeout, () -> {
+            delegate.reserveBatch(reservationKey, reservations);
+            return null;
+        });
+    }
+
+    @Override
+    public void releaseBatch(List<StockReservationDTO> reservations) {
+        guarded(batchTimeout, () -> {
+            delegate.releaseBatch(reservations);
+            return null;
+        });
+    }
+
+    @Override
+    public void releaseReservation(String reservationKey) {
+        guarded(batchTimeout, () -> {
+            delegate.releaseReservation(reservationKey);
+            return null;
+        });
+    }
+
+    //Таймаут внутри breaker: истекший таймаут засчитывается общему breaker как отказ склада
+    @SuppressWarnings("unchecked")
+    private <T> T guarded(Guard timeout, Supplier<T> call) {
+        if(breaker == null) {
+            return limited(call);
+        }
+        Class<T> sync = (Class<T>) Object.class;
+        return breaker.get(() -> timeout.get(() -> limited(call), sync), sync);
+    }
+
+    private static Guard timeout(Duration value) {
+        return Guard.create()
+                .withTimeout()
+                    .duration(value.toMillis(), ChronoUnit.MILLIS)
+                    .done()
+                .build();
+    }
+
+    private <T> T limited(Supplier<T> call) {
+        if(!limiter.tryAcquire()) {
+            logger.warn("Запрос к складу отклонен, предел одновременных запросов: {}", limiter.limit());
+            throw new StorageOverloadedException(limiter.limit());
+        }
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            T result = call.get();
+            dropped = false;
+            return result;
+        } catch (RuntimeException e) {
+            //Ошибки товара и остатка - нормальный ответ склада, предел из-за них не снижаем
+            dropped = e instanceof StorageUnavailableException || e instanceof ProcessingException;
+            throw e;
+        } finally {
+            limiter.release(System.nanoTime() - start, dropped || Thread.currentThread().isInterrupted());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.market.client;
+
+import com.market.exception.api.ApiException;
+import com.market.exception.api.ProductNotFoundException;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+
+//Условный GET карточки товара: ETag есть только у REST, поэтому метода нет в StorageClient.
+//Вызывается только через GuardedStorageClient.getProductConditional
+@ApplicationScoped
+@RegisterRestClient(configKey = "storage-api")
+@Produces(MediaType.APPLICATION_JSON)
+public interface ProductCardClient {
+
+    //Ответ 304 приходит без тела, если ETag не изменился
+    @GET
+    @Path("/{id}")
+    Response getProductConditional(@PathParam("id") Long id, @HeaderParam("If-None-Match") String etag) throws ProductNotFoundException, ApiException;
+}
@@ -0,0 +1,196 @@
+package com.market.client;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.market.dto.ProductDTO;
+import com.market.dto.ProductInfoDTO;
+import com.market.exception.api.ProductNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Название, цена и категория товара со склада. Запись обновляется в фоне после refresh-after,
+//после ttl перепроверяется через If-None-Match, при недоступном складе отдается устаревшей,
+//а следующая синхронная перепроверка откладывается на retry-backoff
+@ApplicationScoped
+public class ProductInfoClient {
+    private static final Logger logger = LoggerFactory.getLogger(ProductInfoClient.class);
+
+    @Inject
+    StorageClient storageClient;
+
+    @Inject
+    GuardedStorageClient guardedClient;
+
+    @Inject
+    StorageClientProducer transport;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "order.product-info.max-entries", defaultValue = "10000")
+    long maxEntries;
+
+    @ConfigProperty(name = "order.product-info.refresh-after", defaultValue = "30s")
+    Duration refreshAfter;
+
+    @ConfigProperty(name = "order.product-info.ttl", defaultValue = "5m")
+    Duration ttl;
+
+    @ConfigProperty(name = "order.product-info.max-stale", defaultValue = "1h")
+    Duration maxStale;
+
+    @ConfigProperty(name = "order.product-info.retry-backoff", defaultValue = "10s")
+    Duration retryBackoff;
+
+    @ConfigProperty(name = "order.product-info.refresh-threads", defaultValue = "4")
+    int refreshThreads;
+
+    private volatile Ticker ticker = Ticker.systemTicker();
+    private LoadingCache<Long, CachedProduct> products;
+    //Фоновые обновления ходят на склад блокирующим вызовом, общий ForkJoinPool для этого не подходит
+    private ExecutorService refreshExecutor;
+    private Counter staleServed;
+    private DistributionSummary servedAge;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threads = new AtomicInteger();
+        refreshExecutor = Executors.newFixedThreadPool(refreshThreads, task -> {
+            Thread thread = new Thread(task, "product-info-refresh-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        products = Caffeine.newBuilder()
+                .executor(refreshExecutor)
+                .maximumSize(maxEntries)
+                .refreshAfterWrite(refreshAfter)
+                .expireAfterWrite(maxStale)
+                .ticker(() -> ticker.read())
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public CachedProduct load(Long id) {
+                        return fetch(id, null);
+                    }
+
+                    //Фоновое обновление: удаленный товар выпадает из кэша, прочие ошибки оставляют старую запись
+                    @Override
+                    public CachedProduct reload(Long id, CachedProduct previous) {
+                        try {
+                            return fetch(id, previous);
+                        } catch (ProductNotFoundException | NotFoundException e) {
+                            logger.info("Товар ID {} удален со склада, убран из кэша", id);
+                            return null;
+                        } catch (RuntimeException e) {
+                            postponeRetry(previous);
+                            throw e;
+                        }
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "product-info");
+        staleServed = Counter.builder("product.info.stale.served")
+                .description("Ответы из кэша после ttl, когда склад недоступен")
+                .register(meterRegistry);
+        servedAge = DistributionSummary.builder("product.info.age")
+                .description("Возраст отданной из кэша карточки товара")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    public ProductInfoDTO getProduct(Long id) {
+        CachedProduct cached = products.policy().getIfPresentQuietly(id);
+        if(cached != null && age(cached) > ttl.toNanos()) {
+            cached = ticker.read() < cached.retryAt().get() ? serveStale(id, cached) : revalidate(id, cached);
+        } else {
+            cached = products.get(id);
+        }
+        servedAge.record(age(cached) / 1e9);
+        return cached.product();
+    }
+
+    //Для тестов: время кэша без ожидания
+    void useTicker(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    private CachedProduct revalidate(Long id, CachedProduct stale) {
+        try {
+            CachedProduct fresh = fetch(id, stale);
+            products.put(id, fresh);
+            return fresh;
+        } catch (ProductNotFoundException | NotFoundException e) {
+            products.invalidate(id);
+            throw e;
+        } catch (RuntimeException e) {
+            //Запись не перекладывается: expireAfterWrite по-прежнему считает max-stale от последнего успешного ответа
+            postponeRetry(stale);
+            logger.warn("Склад не ответил, товар ID {} отдается из кэша, повтор не раньше чем через {}",
+                    id, retryBackoff, e);
+            return serveStale(id, stale);
+        }
+    }
+
+    private CachedProduct serveStale(Long id, CachedProduct stale) {
+        staleServed.increment();
+        logger.debug("Товар ID {} отдается из кэша возрастом {} с", id, age(stale) / 1_000_000_000L);
+        return stale;
+    }
+
+    private void postponeRetry(CachedProduct cached) {
+        cached.retryAt().set(ticker.read() + retryBackoff.toNanos());
+    }
+
+    private CachedProduct fetch(Long id, CachedProduct previous) {
+        //По gRPC ответ и так компактный, ETag есть только у REST
+        if(transport.isGrpc()) {
+            return CachedProduct.of(null, ProductInfoDTO.from(storageClient.getProduct(id)), ticker.read());
+        }
+        String etag = previous == null ? null : previous.etag();
+        try (Response response = guardedClient.getProductConditional(id, etag)) {
+            if(previous != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                logger.debug("Товар ID {} не изменился на складе", id);
+                return CachedProduct.of(previous.etag(), previous.product(), ticker.read());
+            }
+            ProductDTO product = response.readEntity(ProductDTO.class);
+            return CachedProduct.of(response.getHeaderString(HttpHeaders.ETAG), ProductInfoDTO.from(product),
+                    ticker.read());
+        }
+    }
+
+    private long age(CachedProduct cached) {
+        return ticker.read() - cached.fetchedAt();
+    }
+
+    //retryAt - время тикера, раньше которого после неудачи склад синхронно не перепроверяется
+    private record CachedProduct(String etag, ProductInfoDTO product, long fetchedAt, AtomicLong retryAt) {
+        //Показания тикера могут быть отрицательными, поэтому «без отсрочки» - минимальное значение
+        static CachedProduct of(String etag, ProductInfoDTO product, long fetchedAt) {
+            return new CachedProduct(etag, product, fetchedAt, new AtomicLong(Long.MIN_VALUE));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.market.client;
 
 import com.market.dto.ProductDTO;
+import com.market.dto.StockReservationDTO;
 import com.market.exception.api.ApiException;
 import com.market.exception.api.InsufficientStockException;
 import com.market.exception.api.ProductNotFoundException;
@@ -9,6 +10,8 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
+import java.util.List;
+
 @ApplicationScoped
 @RegisterRestClient(configKey = "storage-api")
 @Produces(MediaType.APPLICATION_JSON)
@@ -31,4 +34,17 @@ public interface StorageClient {
     @Path("/{id}/order-cancel")
     void orderProcessCancel(@PathParam("id") Long id, @QueryParam("amount") int amount) throws ProductNotFoundException, ApiException;
 
+    //Повтор с тем же ключом не спишет товар дважды, releaseReservation отменяет резерв по ключу
+    @POST
+    @Path("/reserve-batch")
+    void reserveBatch(@QueryParam("key") String reservationKey, List<StockReservationDTO> reservations) throws ProductNotFoundException, InsufficientStockException, ApiException;
+
+    @POST
+    @Path("/reservations/{key}/release")
+    void releaseReservation(@PathParam("key") String reservationKey) throws ApiException;
+
+    @POST
+    @Path("/release-batch")
+    void releaseBatch(List<StockReservationDTO> reservations) throws ProductNotFoundException, ApiException;
+
 }
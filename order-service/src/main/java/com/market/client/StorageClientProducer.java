@@ -0,0 +1,45 @@
+package com.market.client;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//Транспорт до склада выбирается настройкой storage.client.transport: rest (по умолчанию) или grpc,
+//остальной код получает его обернутым в GuardedStorageClient
+@ApplicationScoped
+public class StorageClientProducer {
+    private static final Logger logger = LoggerFactory.getLogger(StorageClientProducer.class);
+
+    @Inject
+    @RestClient
+    StorageClient restClient;
+
+    @Inject
+    Instance<GrpcStorageClient> grpcClient;
+
+    @Inject
+    Instance<GuardedStorageClient> guardedClient;
+
+    @ConfigProperty(name = "storage.client.transport", defaultValue = "rest")
+    String transport;
+
+    @Produces
+    @ApplicationScoped
+    StorageClient storageClient() {
+        return guardedClient.get();
+    }
+
+    public StorageClient transportClient() {
+        logger.info("Транспорт до склада: {}", transport);
+        return isGrpc() ? grpcClient.get() : restClient;
+    }
+
+    public boolean isGrpc() {
+        return "grpc".equalsIgnoreCase(transport);
+    }
+}
@@ -40,6 +40,10 @@ public class OrderResponseDTO {
     @JsonProperty
     public OrderStatus status;
 
+    //Причина для заказа в статусе FAILED
+    @JsonProperty
+    public String failureReason;
+
     public OrderResponseDTO() {}
 
     public OrderResponseDTO(Long orderId, String customerPhone, BigDecimal totalPrice, LocalDateTime createDate, String deliveryAddress, List<OrderProductDTO> orderProducts, OrderStatus status) {
@@ -0,0 +1,26 @@
+package com.market.dto;
+
+import java.math.BigDecimal;
+
+//Редко меняющаяся часть карточки товара: её можно кэшировать, остаток сюда не входит
+public class ProductInfoDTO {
+    public Long id;
+
+    public String name;
+
+    public ProductDTO.CategoryDTO category;
+
+    public BigDecimal price;
+
+    public ProductInfoDTO() {}
+    public ProductInfoDTO(Long id, String name, ProductDTO.CategoryDTO category, BigDecimal price) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.price = price;
+    }
+
+    public static ProductInfoDTO from(ProductDTO product) {
+        return new ProductInfoDTO(product.id, product.name, product.category, product.price);
+    }
+}
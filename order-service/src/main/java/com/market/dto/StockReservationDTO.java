@@ -0,0 +1,18 @@
+package com.market.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public class StockReservationDTO {
+    @NotNull
+    public Long productId;
+
+    @Positive
+    public int amount;
+
+    public StockReservationDTO() {}
+    public StockReservationDTO(Long productId, int amount) {
+        this.productId = productId;
+        this.amount = amount;
+    }
+}
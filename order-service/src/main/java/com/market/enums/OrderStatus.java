@@ -1,9 +1,13 @@
 package com.market.enums;
 
 public enum OrderStatus {
+    //Принят, резерв на складе еще не выполнен
+    PENDING,
     CREATED,
     PROCESSING,
     SHIPPED,
     DELIVERED,
-    CANCELLED;
+    CANCELLED,
+    //Резерв не удался: товара нет или склад так и не ответил
+    FAILED;
 }
@@ -8,6 +8,11 @@ public class ApiException extends RuntimeException {
         this.statusCode = statusCode;
     }
 
+    public ApiException(String message, int statusCode, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
     public int getStatusCode() {
         return statusCode;
     }
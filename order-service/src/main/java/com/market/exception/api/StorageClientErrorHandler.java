@@ -14,6 +14,10 @@ public class StorageClientErrorHandler implements ResponseExceptionMapper<Runtim
         String errorMsg = response.readEntity(String.class);
         int status = response.getStatus();
 
+        //Любой 5xx, в том числе 500 при сбое базы склада, - отказ склада: его считают breaker и адаптивный предел
+        if(status >= 500) {
+            return new StorageUnavailableException("Склад недоступен: " + status);
+        }
         return switch (status) {
             case 404 -> new ProductNotFoundException(extractIdFromError(errorMsg));
             case 400 -> new InsufficientStockException(extractIdFromError(errorMsg));
@@ -0,0 +1,41 @@
+package com.market.exception.api;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//Недоступный или перегруженный склад - 503 с Retry-After, а не 500
+public class StorageFailureMappers {
+    private static final Logger logger = LoggerFactory.getLogger(StorageFailureMappers.class);
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    //Открытый breaker, таймаут или переполненный bulkhead
+    @ServerExceptionMapper
+    public Response mapFaultTolerance(FaultToleranceException e) {
+        logger.warn("Склад недоступен: {}", e.toString());
+        return unavailable("Склад временно недоступен");
+    }
+
+    @ServerExceptionMapper
+    public Response mapUnavailable(StorageUnavailableException e) {
+        logger.warn(e.getMessage());
+        return unavailable(e.getMessage());
+    }
+
+    @ServerExceptionMapper
+    public Response mapOverloaded(StorageOverloadedException e) {
+        logger.warn(e.getMessage());
+        return unavailable(e.getMessage());
+    }
+
+    private static Response unavailable(String message) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .entity(message)
+                .build();
+    }
+}
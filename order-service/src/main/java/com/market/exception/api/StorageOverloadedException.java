@@ -0,0 +1,8 @@
+package com.market.exception.api;
+
+//Вызов не отправлен: достигнут предел одновременных запросов к складу
+public class StorageOverloadedException extends ApiException {
+    public StorageOverloadedException(int limit) {
+        super("Превышен предел одновременных запросов к складу: " + limit, 503);
+    }
+}
@@ -0,0 +1,12 @@
+package com.market.exception.api;
+
+//Склад не ответил или ответил 5xx: считается отказом для circuit breaker
+public class StorageUnavailableException extends ApiException {
+    public StorageUnavailableException(String message) {
+        super(message, 503);
+    }
+
+    public StorageUnavailableException(String message, Throwable cause) {
+        super(message, 503, cause);
+    }
+}
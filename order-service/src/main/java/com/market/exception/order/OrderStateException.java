@@ -0,0 +1,9 @@
+package com.market.exception.order;
+
+import com.market.enums.OrderStatus;
+
+public class OrderStateException extends OrderException {
+    public OrderStateException(Long id, OrderStatus status) {
+        super("Заказ с id " + id + " в статусе " + status + " нельзя изменить");
+    }
+}
@@ -0,0 +1,17 @@
+package com.market.exception.order;
+
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//Заказ еще оформляется или не оформлен - 409, а не 500
+public class OrderStateMapper {
+    private static final Logger logger = LoggerFactory.getLogger(OrderStateMapper.class);
+
+    @ServerExceptionMapper
+    public Response mapOrderState(OrderStateException e) {
+        logger.warn(e.getMessage());
+        return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
+}
@@ -5,4 +5,8 @@ public class OrderStockException extends OrderException{
         super(String.format("Недостаточно товара с ID %d (в наличии: %d, запрошено: %d)",
                 productId, available, requested));
     }
+
+    public OrderStockException(Long productId, int requested) {
+        super(String.format("Недостаточно товара с ID %d (запрошено: %d)", productId, requested));
+    }
 }
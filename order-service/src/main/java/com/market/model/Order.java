@@ -43,11 +43,16 @@ public class Order {
     @Column(columnDefinition = "order_status")
     private OrderStatus status;
 
+    @Column(name="failure_reason")
+    private String failureReason;
 
     @PrePersist
     protected void onCreate() {
         this.createDate = LocalDateTime.now();
-        this.status = OrderStatus.CREATED;
+        //Асинхронный заказ сохраняется в PENDING
+        if(this.status == null) {
+            this.status = OrderStatus.CREATED;
+        }
     }
 
     public Order() {}
@@ -72,6 +77,8 @@ public class Order {
     public void setOrderProducts(List<OrderProduct> orderProducts) {this.orderProducts = orderProducts;}
     public OrderStatus getStatus() {return status;}
     public void setStatus(OrderStatus status) {this.status = status;}
+    public String getFailureReason() {return failureReason;}
+    public void setFailureReason(String failureReason) {this.failureReason = failureReason;}
 
     public void addOrderProduct(OrderProduct orderProduct) {orderProducts.add(orderProduct);}
     public void deleteOrderProduct(OrderProduct orderProduct) {orderProducts.remove(orderProduct);}
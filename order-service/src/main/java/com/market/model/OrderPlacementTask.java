@@ -0,0 +1,64 @@
+package com.market.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+//Заказ в PENDING, ожидающий резерва на складе. Строки заказа хранятся как JSON до появления цен
+@Entity
+@Table(name="order_placement_queue")
+public class OrderPlacementTask {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name="order_id")
+    private Long orderId;
+
+    @NotNull
+    @Column(name="lines", columnDefinition = "text")
+    private String lines;
+
+    private int attempts;
+
+    @NotNull
+    @Column(name="next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name="created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name="last_error")
+    private String lastError;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+        if(this.nextAttemptAt == null) {
+            this.nextAttemptAt = this.createdAt;
+        }
+    }
+
+    public OrderPlacementTask() {}
+    public OrderPlacementTask(Long orderId, String lines) {
+        this.orderId = orderId;
+        this.lines = lines;
+    }
+
+    public Long getId() {return id;}
+    public void setId(Long id) {this.id = id;}
+    public Long getOrderId() {return orderId;}
+    public void setOrderId(Long orderId) {this.orderId = orderId;}
+    public String getLines() {return lines;}
+    public void setLines(String lines) {this.lines = lines;}
+    public int getAttempts() {return attempts;}
+    public void setAttempts(int attempts) {this.attempts = attempts;}
+    public LocalDateTime getNextAttemptAt() {return nextAttemptAt;}
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {this.nextAttemptAt = nextAttemptAt;}
+    public LocalDateTime getCreatedAt() {return createdAt;}
+    public void setCreatedAt(LocalDateTime createdAt) {this.createdAt = createdAt;}
+    public String getLastError() {return lastError;}
+    public void setLastError(String lastError) {this.lastError = lastError;}
+}
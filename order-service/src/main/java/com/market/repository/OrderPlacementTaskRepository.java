@@ -0,0 +1,31 @@
+package com.market.repository;
+
+import com.market.model.OrderPlacementTask;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.LockModeType;
+import org.hibernate.LockOptions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@ApplicationScoped
+public class OrderPlacementTaskRepository implements PanacheRepository<OrderPlacementTask> {
+
+    //SELECT ... FOR UPDATE SKIP LOCKED: несколько экземпляров сервиса разбирают очередь, не мешая друг другу
+    public List<OrderPlacementTask> lockDue(LocalDateTime now, int limit) {
+        return find("nextAttemptAt <= ?1 ORDER BY nextAttemptAt, id", now)
+                .withLock(LockModeType.PESSIMISTIC_WRITE)
+                .withHint("jakarta.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+                .page(0, limit)
+                .list();
+    }
+
+    public OrderPlacementTask findByOrderId(Long orderId) {
+        return find("orderId", orderId).firstResult();
+    }
+
+    public long deleteByOrderId(Long orderId) {
+        return delete("orderId", orderId);
+    }
+}
@@ -4,9 +4,12 @@ import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import com.market.model.Order;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @ApplicationScoped
@@ -14,20 +17,64 @@ public class OrderRepository implements PanacheRepository<Order> {
     @PersistenceContext
     public EntityManager em;
 
-    public List<Order> findByCustomerPhone(String phone) {
-        return find("customerPhone", phone).list();
+    //Keyset-пагинация по (create_date, id): страница начинается сразу после последнего отданного заказа.
+    //Сначала выбираются id страницы, затем заказы со строками одним fetch join
+    public List<Order> findPage(LocalDateTime afterDate, Long afterId, int limit) {
+        return page(null, null, afterDate, afterId, limit);
     }
 
-    public List<Order> findByDeliveryAddress(String deliveryAddress) {
-        return find("deliveryAddress", deliveryAddress).list();
+    public List<Order> findPageByCustomerPhone(String phone, LocalDateTime afterDate, Long afterId, int limit) {
+        return page("customerPhone", phone, afterDate, afterId, limit);
     }
 
+    public List<Order> findPageByDeliveryAddress(String deliveryAddress, LocalDateTime afterDate, Long afterId, int limit) {
+        return page("deliveryAddress", deliveryAddress, afterDate, afterId, limit);
+    }
+
+    //Фильтр по товару в подзапросе, чтобы в заказе остались все строки, а не только найденная
     public List<Order> findByProductId(Long productId) {
-        return find("SELECT DISTINCT o FROM Order o JOIN o.orderProducts op WHERE op.productId= ?1", productId).list();
+        return find("FROM Order o LEFT JOIN FETCH o.orderProducts WHERE o.id IN " +
+                "(SELECT op.order.id FROM OrderProduct op WHERE op.productId = ?1)", productId).list();
     }
 
+    //Лимит с fetch join Hibernate применяет в памяти, поэтому сначала выбираем id, затем заказы со строками
     public List<Order> findRecentOrders(int limit) {
-        return find("ORDER BY createDate DESC").range(0,limit-1).list();
+        if(limit <= 0) {
+            return List.of();
+        }
+        List<Long> ids = em.createQuery("SELECT o.id FROM Order o ORDER BY o.createDate DESC", Long.class)
+                .setMaxResults(limit)
+                .getResultList();
+        if(ids.isEmpty()) {
+            return List.of();
+        }
+        return find("FROM Order o LEFT JOIN FETCH o.orderProducts WHERE o.id IN ?1 ORDER BY o.createDate DESC", ids).list();
+    }
+
+    private List<Order> page(String field, Object value, LocalDateTime afterDate, Long afterId, int limit) {
+        List<String> conditions = new ArrayList<>();
+        if(field != null) {
+            conditions.add("o." + field + " = :value");
+        }
+        if(afterDate != null) {
+            conditions.add("(o.createDate, o.id) > (:afterDate, :afterId)");
+        }
+        String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+
+        TypedQuery<Long> query = em.createQuery("SELECT o.id FROM Order o" + where + " ORDER BY o.createDate, o.id", Long.class)
+                .setMaxResults(limit);
+        if(field != null) {
+            query.setParameter("value", value);
+        }
+        if(afterDate != null) {
+            query.setParameter("afterDate", afterDate);
+            query.setParameter("afterId", afterId);
+        }
+        List<Long> ids = query.getResultList();
+        if(ids.isEmpty()) {
+            return List.of();
+        }
+        return find("FROM Order o LEFT JOIN FETCH o.orderProducts WHERE o.id IN ?1 ORDER BY o.createDate, o.id", ids).list();
     }
 
     public void updateTotalPrice(Long orderId) {
@@ -4,52 +4,85 @@ import com.market.dto.OrderCreateDTO;
 import com.market.dto.OrderResponseDTO;
 import com.market.dto.OrderUpdateDTO;
 import com.market.dto.OrderUpdateInfoDTO;
+import com.market.service.OrderPlacementWorker;
 import com.market.service.OrderService;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+//Все методы блокирующие (createOrder ждет ответов склада, getOrderById - long-poll): на виртуальном потоке
+//ожидание не занимает worker-поток
 @Path("/api/orders")
 public class OrderResource {
     private static final Logger logger = LoggerFactory.getLogger(OrderResource.class);
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    //Предел long-poll, чтобы запрос не упирался в таймауты прокси
+    private static final int MAX_WAIT_SECONDS = 30;
+
     @Inject
     private OrderService orderService;
 
+    @Inject
+    OrderPlacementWorker placementWorker;
+
+    @ConfigProperty(name = "order.placement.async", defaultValue = "false")
+    boolean asyncByDefault;
+
+    //Страница заказов по (дата создания, id), курсор следующей страницы в заголовке X-Next-Cursor
+    @RunOnVirtualThread
     @GET
-    public List<OrderResponseDTO> getAllOrders() {
-        logger.info("Запрос на получение всех заказов");
-        return orderService.findAll();
+    public Response getAllOrders(@QueryParam("after") String after,
+                                 @QueryParam("limit") @DefaultValue("100") int limit) {
+        logger.info("Запрос страницы заказов после {}", after);
+        return pageResponse(orderService.findAll(after, limit));
     }
 
+    //wait > 0: long-poll, ответ придет, как только заказ выйдет из PENDING, или по истечении wait секунд
+    @RunOnVirtualThread
     @GET
     @Path("/{id}")
-    public OrderResponseDTO getOrderById(@PathParam("id") Long id) {
+    public OrderResponseDTO getOrderById(@PathParam("id") Long id, @QueryParam("wait") @DefaultValue("0") int wait) {
         logger.info("Запрос заказа по ID: {}", id);
+        if(wait > 0) {
+            return placementWorker.awaitPlacement(id, Duration.ofSeconds(Math.min(wait, MAX_WAIT_SECONDS)));
+        }
         return orderService.findById(id);
     }
 
+    @RunOnVirtualThread
     @GET
     @Path("/customer-phone")
-    public List<OrderResponseDTO> getOrderByCustomerPhone(@QueryParam("customerPhone") String customerPhone) {
+    public Response getOrderByCustomerPhone(@QueryParam("customerPhone") String customerPhone,
+                                            @QueryParam("after") String after,
+                                            @QueryParam("limit") @DefaultValue("100") int limit) {
         logger.info("Запрос заказов по телефону клиента: {}", customerPhone);
-        return orderService.findByCustomerPhone(customerPhone);
+        return pageResponse(orderService.findByCustomerPhone(customerPhone, after, limit));
     }
 
+    @RunOnVirtualThread
     @GET
     @Path("/delivery-address")
-    public List<OrderResponseDTO> getOrderByDeliveryAddress(@QueryParam("deliveryAddress") String deliveryAddress) {
+    public Response getOrderByDeliveryAddress(@QueryParam("deliveryAddress") String deliveryAddress,
+                                              @QueryParam("after") String after,
+                                              @QueryParam("limit") @DefaultValue("100") int limit) {
         logger.info("Запрос заказов по адресу доставки: {}", deliveryAddress);
-        return orderService.findByDeliveryAddress(deliveryAddress);
+        return pageResponse(orderService.findByDeliveryAddress(deliveryAddress, after, limit));
     }
 
+    @RunOnVirtualThread
     @GET
     @Path("/product-id")
     public List<OrderResponseDTO> getOrderByProductId(@QueryParam("productId") Long productId) {
@@ -57,6 +90,7 @@ public class OrderResource {
         return orderService.findByProductId(productId);
     }
 
+    @RunOnVirtualThread
     @GET
     @Path("/recent")
     public List<OrderResponseDTO> getRecentOrders(@QueryParam("limit") int limit) {
@@ -64,9 +98,21 @@ public class OrderResource {
         return orderService.findRecentOrders(limit);
     }
 
+    //Prefer: respond-async или order.placement.async=true: заказ принимается в PENDING и сразу возвращается 202,
+    //резерв на складе выполняет OrderPlacementWorker
+    @RunOnVirtualThread
     @POST
-    public Response createOrder(@Valid OrderCreateDTO orderCreateDTO) {
+    public Response createOrder(@Valid OrderCreateDTO orderCreateDTO, @HeaderParam("Prefer") String prefer) {
         logger.info("Запрос на создание нового заказа: {}", orderCreateDTO);
+        boolean respondAsync = prefer != null && prefer.toLowerCase().contains("respond-async");
+        if(asyncByDefault || respondAsync) {
+            OrderResponseDTO accepted = orderService.acceptOrder(orderCreateDTO);
+            return Response.accepted(accepted)
+                    .location(URI.create("/api/orders/" + accepted.orderId))
+                    .header("Preference-Applied", "respond-async")
+                    .type(MediaType.APPLICATION_JSON)
+                    .build();
+        }
         OrderResponseDTO order = orderService.createOrder(orderCreateDTO);
 
         if (order == null) {
@@ -78,6 +124,7 @@ public class OrderResource {
                 .build();
     }
 
+    @RunOnVirtualThread
     @PUT
     @Path("/{id}")
     public Response updateOrder(@PathParam("id") Long id, @Valid OrderUpdateDTO orderUpdateDTO) {
@@ -89,6 +136,7 @@ public class OrderResource {
         return Response.status(Response.Status.OK).entity(order).build();
     }
 
+    @RunOnVirtualThread
     @PUT
     @Path("/{id}/information")
     public Response updateOrderInformation(@PathParam("id") Long id, @Valid OrderUpdateInfoDTO orderUpdateDTO) {
@@ -100,6 +148,7 @@ public class OrderResource {
         return Response.status(Response.Status.OK).entity(order).build();
     }
 
+    @RunOnVirtualThread
     @PUT
     @Path("/{id}/add-product")
     public Response addProductOrder(@PathParam("id") Long id, @Valid OrderUpdateDTO.OrderProductDTO orderRequestDTO) {
@@ -111,6 +160,7 @@ public class OrderResource {
         return Response.status(Response.Status.OK).entity(order).build();
     }
 
+    @RunOnVirtualThread
     @PUT
     @Path("/{id}/delete-product")
     public Response deleteProductOrder(@PathParam("id") Long id, @QueryParam("idProduct") Long idOrderProduct) {
@@ -122,6 +172,7 @@ public class OrderResource {
         return Response.status(Response.Status.OK).entity(order).build();
     }
 
+    @RunOnVirtualThread
     @PUT
     @Path("/{id}/change-amount")
     public Response changeOrderAmount(
@@ -138,6 +189,7 @@ public class OrderResource {
         return Response.status(Response.Status.OK).entity(order).build();
     }
 
+    @RunOnVirtualThread
     @DELETE
     @Path("/{id}")
     public Response deleteOrder(@PathParam("id") Long id) {
@@ -145,4 +197,12 @@ public class OrderResource {
         orderService.deleteOrder(id);
         return Response.status(Response.Status.NO_CONTENT).build();
     }
+
+    private Response pageResponse(OrderService.OrderPage page) {
+        Response.ResponseBuilder response = Response.ok(page.items());
+        if(page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.build();
+    }
 }
@@ -0,0 +1,98 @@
+package com.market.service;
+
+import com.market.client.ProductInfoClient;
+import com.market.client.StorageClient;
+import com.market.dto.ProductInfoDTO;
+import com.market.dto.StockReservationDTO;
+import com.market.exception.order.OrderProductException;
+import com.market.exception.order.OrderStockException;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.NotFoundException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+//Карточка и наличие по строкам заказа запрашиваются параллельно на виртуальных потоках,
+//одновременно к складу уходит не больше order.storage.parallelism строк
+@ApplicationScoped
+public class OrderLineChecker {
+    private static final Logger logger = LoggerFactory.getLogger(OrderLineChecker.class);
+
+    @Inject
+    StorageClient storageClient;
+
+    @Inject
+    ProductInfoClient productInfoClient;
+
+    @ConfigProperty(name = "order.storage.parallelism", defaultValue = "8")
+    int parallelism;
+
+    public record CheckedLine(StockReservationDTO line, ProductInfoDTO product) {}
+
+    //Ошибки в том же виде, что при последовательной проверке: первая по порядку строк
+    public List<CheckedLine> check(List<StockReservationDTO> lines) {
+        if(lines.size() == 1 || parallelism <= 1) {
+            return lines.stream().map(this::check).toList();
+        }
+
+        Semaphore permits = new Semaphore(parallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<CheckedLine>> futures = new ArrayList<>(lines.size());
+            for(StockReservationDTO line : lines) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return check(line);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            List<CheckedLine> checked = new ArrayList<>(lines.size());
+            for(Future<CheckedLine> future : futures) {
+                try {
+                    checked.add(future.get());
+                } catch (ExecutionException e) {
+                    executor.shutdownNow();
+                    if(e.getCause() instanceof RuntimeException cause) {
+                        throw cause;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Проверка строк заказа прервана", e);
+                }
+            }
+            return checked;
+        }
+    }
+
+    private CheckedLine check(StockReservationDTO line) {
+        ProductInfoDTO product;
+        try{
+            product = productInfoClient.getProduct(line.productId);
+            logger.debug("Получена информация о товаре ID {}: {}", line.productId, product);
+        }
+        catch(NotFoundException e){
+            logger.error("Товар с ID {} не найден", line.productId);
+            throw new OrderProductException("Товар с id " + line.productId + " не найден", e);
+        }
+
+        if(!storageClient.hasStock(line.productId, line.amount)){
+            logger.error("Недостаточно товара ID {}: запрошено {}", line.productId, line.amount);
+            throw new OrderStockException(line.productId, line.amount);
+        }
+        return new CheckedLine(line, product);
+    }
+}
@@ -0,0 +1,248 @@
+package com.market.service;
+
+import com.market.dto.OrderResponseDTO;
+import com.market.enums.OrderStatus;
+import com.market.exception.api.StorageOverloadedException;
+import com.market.model.OrderPlacementTask;
+import com.market.repository.OrderPlacementTaskRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+//Разбирает очередь асинхронных заказов: пачку задач забирает SELECT ... FOR UPDATE SKIP LOCKED
+//и сдвигает им next_attempt_at на lease, резерв идет на ограниченном числе виртуальных потоков.
+//Упавший экземпляр не теряет заказы: по истечении lease задачу заберет другой
+@Startup
+@ApplicationScoped
+public class OrderPlacementWorker {
+    private static final Logger logger = LoggerFactory.getLogger(OrderPlacementWorker.class);
+
+    private static final int MAX_REASON_LENGTH = 255;
+
+    @Inject
+    OrderService orderService;
+
+    @Inject
+    OrderPlacementTaskRepository taskRepository;
+
+    @ConfigProperty(name = "order.placement.worker.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "order.placement.poll-interval", defaultValue = "200ms")
+    Duration pollInterval;
+
+    @ConfigProperty(name = "order.placement.batch-size", defaultValue = "32")
+    int batchSize;
+
+    @ConfigProperty(name = "order.placement.workers", defaultValue = "8")
+    int workers;
+
+    @ConfigProperty(name = "order.placement.lease", defaultValue = "1m")
+    Duration lease;
+
+    @ConfigProperty(name = "order.placement.max-attempts", defaultValue = "5")
+    int maxAttempts;
+
+    @ConfigProperty(name = "order.placement.retry-backoff", defaultValue = "2s")
+    Duration retryBackoff;
+
+    //Ожидающие long-poll запросы этого экземпляра
+    private final Map<Long, CompletableFuture<Void>> waiters = new ConcurrentHashMap<>();
+    private Semaphore permits;
+    private ExecutorService executor;
+    private ScheduledExecutorService poller;
+
+    private record Claim(Long orderId, int attempt) {}
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(workers);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        poller = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "order-placement-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if(enabled) {
+            poller.scheduleWithFixedDelay(this::pollSafely, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+            logger.info("Асинхронное оформление заказов: опрос каждые {}, пачка до {}, потоков {}", pollInterval, batchSize, workers);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        poller.shutdown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    //Забирает одну пачку и дожидается ее обработки; возвращает число заказов в пачке
+    public int drain() {
+        List<CompletableFuture<Void>> running = poll();
+        running.forEach(CompletableFuture::join);
+        return running.size();
+    }
+
+    //Long-poll: ждет, пока заказ выйдет из PENDING, но не дольше wait.
+    //Уведомление приходит только от этого экземпляра, поэтому заказ перечитывается не реже раза в секунду
+    public OrderResponseDTO awaitPlacement(Long orderId, Duration wait) {
+        long deadline = System.nanoTime() + wait.toNanos();
+        while(true) {
+            //Ожидание регистрируется до чтения, чтобы не пропустить уведомление, и снимается на любом выходе,
+            //в том числе когда заказа нет: иначе запросы на несуществующие id копили бы ожидания без конца
+            CompletableFuture<Void> done = waiters.computeIfAbsent(orderId, id -> new CompletableFuture<>());
+            try {
+                OrderResponseDTO order = orderService.findById(orderId);
+                long left = deadline - System.nanoTime();
+                if(order.status != OrderStatus.PENDING || left <= 0) {
+                    return order;
+                }
+                try {
+                    done.get(Math.min(left, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException | ExecutionException e) {
+                    //Уведомления не было: перечитываем заказ
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return order;
+                }
+            } finally {
+                waiters.remove(orderId, done);
+            }
+        }
+    }
+
+    //Для тестов: число зарегистрированных ожиданий
+    int waiting() {
+        return waiters.size();
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            logger.error("Не удалось забрать заказы из очереди", e);
+        }
+    }
+
+    private List<CompletableFuture<Void>> poll() {
+        int free = permits.availablePermits();
+        if(free == 0) {
+            return List.of();
+        }
+        List<Claim> claims = claim(Math.min(batchSize, free));
+        if(!claims.isEmpty()) {
+            logger.debug("Из очереди взято заказов: {}", claims.size());
+        }
+        return claims.stream()
+                .map(claim -> {
+                    permits.acquireUninterruptibly();
+                    return CompletableFuture.runAsync(() -> {
+                        try {
+                            place(claim);
+                        } finally {
+                            permits.release();
+                        }
+                    }, executor);
+                })
+                .toList();
+    }
+
+    private List<Claim> claim(int limit) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OrderPlacementTask> tasks = taskRepository.lockDue(now, limit);
+            LocalDateTime leaseUntil = now.plus(lease);
+            return tasks.stream()
+                    .map(task -> {
+                        task.setAttempts(task.getAttempts() + 1);
+                        task.setNextAttemptAt(leaseUntil);
+                        return new Claim(task.getOrderId(), task.getAttempts());
+                    })
+                    .toList();
+        });
+    }
+
+    private void place(Claim claim) {
+        try {
+            orderService.completePlacement(claim.orderId());
+        } catch (RuntimeException e) {
+            if(isRetryable(e) && claim.attempt() < maxAttempts) {
+                postpone(claim, e);
+                return;
+            }
+            try {
+                orderService.failPlacement(claim.orderId(), reason(e));
+            } catch (RuntimeException failure) {
+                logger.error("Не удалось отметить заказ ID {} как неоформленный", claim.orderId(), failure);
+                return;
+            }
+        }
+        CompletableFuture<Void> done = waiters.remove(claim.orderId());
+        if(done != null) {
+            done.complete(null);
+        }
+    }
+
+    //Запрос не дошел до склада: задача вернется в очередь с растущей паузой
+    private void postpone(Claim claim, RuntimeException e) {
+        Duration backoff = retryBackoff.multipliedBy(claim.attempt());
+        logger.warn("Склад не ответил для заказа ID {}, попытка {} из {}, повтор через {}",
+                claim.orderId(), claim.attempt(), maxAttempts, backoff);
+        try {
+            QuarkusTransaction.requiringNew().run(() -> {
+                OrderPlacementTask task = taskRepository.findByOrderId(claim.orderId());
+                if(task != null) {
+                    task.setNextAttemptAt(LocalDateTime.now().plus(backoff));
+                    task.setLastError(reason(e));
+                }
+            });
+        } catch (RuntimeException failure) {
+            //Задача все равно вернется в очередь по истечении lease
+            logger.error("Не удалось отложить заказ ID {}", claim.orderId(), failure);
+        }
+    }
+
+    //Повторяем только отказы, при которых запрос точно не ушел на склад: открытый breaker, полный bulkhead,
+    //предел одновременных запросов, ошибка соединения. После таймаута или 5xx склад мог списать товар:
+    //заказ отклоняется, а резерв при откате отменяется по ключу
+    static boolean isRetryable(RuntimeException e) {
+        if(e instanceof CircuitBreakerOpenException || e instanceof BulkheadException
+                || e instanceof StorageOverloadedException) {
+            return true;
+        }
+        for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if(cause instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String reason(RuntimeException e) {
+        String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        return message.length() > MAX_REASON_LENGTH ? message.substring(0, MAX_REASON_LENGTH) : message;
+    }
+}
@@ -1,25 +1,43 @@
 package com.market.service;
 
+import com.market.client.ProductInfoClient;
 import com.market.client.StorageClient;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.market.dto.*;
+import com.market.enums.OrderStatus;
 import com.market.exception.order.*;
 import com.market.dto.*;
 import com.market.exception.order.*;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
 import com.market.model.Order;
+import com.market.model.OrderPlacementTask;
 import com.market.model.OrderProduct;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
+import com.market.repository.OrderPlacementTaskRepository;
 import com.market.repository.OrderProductRepository;
 import com.market.repository.OrderRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,19 +49,38 @@ public class OrderService {
     OrderRepository orderRepository;
 
     @Inject
-    @RestClient
     StorageClient storageClient;
 
+    @Inject
+    ProductInfoClient productInfoClient;
+
     @Inject
     OrderProductRepository orderProductRepository;
 
-    public List<OrderResponseDTO> findAll() {
-        logger.info("Получение списка всех заказов");
-        List<OrderResponseDTO> orders = orderRepository.listAll().stream()
-                .map(this::toDTO)
-                .toList();
-        logger.debug("Найдено {} заказов", orders.size());
-        return orders;
+    @Inject
+    OrderLineChecker orderLineChecker;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    OrderPlacementTaskRepository placementTaskRepository;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "order.page.max-limit", defaultValue = "500")
+    int pageMaxLimit;
+
+    public record OrderPage(List<OrderResponseDTO> items, String nextCursor) {}
+
+    public OrderPage findAll(String after, int limit) {
+        logger.info("Получение страницы заказов после {}, limit: {}", after, limit);
+        OrderCursor cursor = OrderCursor.parse(after);
+        int pageSize = pageSize(limit);
+        OrderPage page = toPage(orderRepository.findPage(cursor.createDate(), cursor.id(), pageSize + 1), pageSize);
+        logger.debug("Найдено {} заказов", page.items().size());
+        return page;
     }
 
     public OrderResponseDTO findById(Long id) {
@@ -56,22 +93,22 @@ public class OrderService {
         return toDTO(order);
     }
 
-    public List<OrderResponseDTO> findByCustomerPhone(String phone) {
-        logger.info("Поиск заказов по телефону клиента: {}", phone);
-        List<OrderResponseDTO> orders = orderRepository.findByCustomerPhone(phone).stream()
-                .map(this::toDTO)
-                .toList();
-        logger.debug("Найдено {} заказов для телефона {}", orders.size(), phone);
-        return orders;
+    public OrderPage findByCustomerPhone(String phone, String after, int limit) {
+        logger.info("Поиск заказов по телефону клиента: {}, после {}", phone, after);
+        OrderCursor cursor = OrderCursor.parse(after);
+        int pageSize = pageSize(limit);
+        OrderPage page = toPage(orderRepository.findPageByCustomerPhone(phone, cursor.createDate(), cursor.id(), pageSize + 1), pageSize);
+        logger.debug("Найдено {} заказов для телефона {}", page.items().size(), phone);
+        return page;
     }
 
-    public List<OrderResponseDTO>  findByDeliveryAddress(String deliveryAddress) {
-        logger.info("Поиск заказов по адресу доставки: {}", deliveryAddress);
-        List<OrderResponseDTO> orders = orderRepository.findByDeliveryAddress(deliveryAddress).stream()
-                .map(this::toDTO)
-                .toList();
-        logger.debug("Найдено {} заказов для адреса {}", orders.size(), deliveryAddress);
-        return orders;
+    public OrderPage findByDeliveryAddress(String deliveryAddress, String after, int limit) {
+        logger.info("Поиск заказов по адресу доставки: {}, после {}", deliveryAddress, after);
+        OrderCursor cursor = OrderCursor.parse(after);
+        int pageSize = pageSize(limit);
+        OrderPage page = toPage(orderRepository.findPageByDeliveryAddress(deliveryAddress, cursor.createDate(), cursor.id(), pageSize + 1), pageSize);
+        logger.debug("Найдено {} заказов для адреса {}", page.items().size(), deliveryAddress);
+        return page;
     }
 
     public List<OrderResponseDTO>  findByProductId(Long productId) {
@@ -102,48 +139,72 @@ public class OrderService {
         order.setCreateDate(LocalDateTime.now());
         order.setTotalPrice(BigDecimal.ZERO);
 
-        BigDecimal totalPrice = BigDecimal.ZERO;
+        order.setTotalPrice(reserveLines(order, toReservations(createOrder)));
+        orderRepository.persist(order);
+        logger.info("Создан новый заказ ID: {}, Общая сумма: {}", order.getId(), order.getTotalPrice());
 
-        for(OrderCreateDTO.OrderProductDTO productOrder: createOrder.orderProducts){
-            logger.debug("Обработка товара в заказе: ID {}, Количество {}", productOrder.productId, productOrder.amount);
+        return toDTO(order);
+    }
 
-            ProductDTO product;
-            try{
-                product = storageClient.getProduct(productOrder.productId);
-                logger.debug("Получена информация о товаре ID {}: {}", productOrder.productId, product);
-            }
-            catch(NotFoundException e){
-                logger.error("Товар с ID {} не найден", productOrder.productId);
-                throw new OrderProductException("Товар с id " + productOrder.productId + " не найден", e);
-            }
+    //Асинхронное оформление: заказ сохраняется в PENDING, резерв выполнит OrderPlacementWorker
+    @Transactional
+    public OrderResponseDTO acceptOrder(OrderCreateDTO createOrder) {
+        logger.info("Прием заказа в очередь: {}", createOrder);
 
-            if(!storageClient.hasStock(productOrder.productId,productOrder.amount)){
-                logger.error("Недостаточно товара ID {}: (имеется {}, запрошено {})",
-                        productOrder.productId,  product.amount , productOrder.amount) ;
-                throw new OrderStockException(productOrder.productId, product.amount, productOrder.amount );
-            }
+        Order order = new Order();
+        order.setCustomerPhone(createOrder.customerPhone);
+        order.setDeliveryAddress(createOrder.deliveryAddress);
+        order.setCreateDate(LocalDateTime.now());
+        order.setTotalPrice(BigDecimal.ZERO);
+        order.setStatus(OrderStatus.PENDING);
+        orderRepository.persist(order);
 
-            storageClient.orderProcess(productOrder.productId, productOrder.amount);
-            logger.debug("Товар ID {} зарезервирован в количестве {}", productOrder.productId, productOrder.amount);
+        String lines;
+        try {
+            lines = objectMapper.writeValueAsString(toReservations(createOrder));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сохранить строки заказа", e);
+        }
+        placementTaskRepository.persist(new OrderPlacementTask(order.getId(), lines));
+        logger.info("Заказ ID {} принят, ожидает резерва на складе", order.getId());
 
-            //Создаем новый товар в заказе
-            OrderProduct orderProduct = new OrderProduct(
-                    order,
-                    productOrder.productId,
-                    productOrder.amount,
-                    product.price,
-                    product.price.multiply(new BigDecimal(productOrder.amount)),
-                    product.name
-            );
-            totalPrice= totalPrice.add(orderProduct.getTotalPrice());
-            order.addOrderProduct(orderProduct);
+        return toDTO(order);
+    }
 
+    //Резерв для заказа из очереди: при успехе заказ становится CREATED и задача удаляется в той же транзакции
+    @Transactional
+    public void completePlacement(Long orderId) {
+        //Строка заказа блокируется до коммита: повторная попытка с другого экземпляра дождется ее и увидит CREATED
+        Order order = orderRepository.findById(orderId, LockModeType.PESSIMISTIC_WRITE);
+        OrderPlacementTask task = placementTaskRepository.findByOrderId(orderId);
+        if(order == null || task == null || order.getStatus() != OrderStatus.PENDING) {
+            logger.info("Заказ ID {} уже не ожидает резерва", orderId);
+            placementTaskRepository.deleteByOrderId(orderId);
+            return;
         }
-        order.setTotalPrice(totalPrice);
-        orderRepository.persist(order);
-        logger.info("Создан новый заказ ID: {}, Общая сумма: {}", order.getId(), order.getTotalPrice());
 
-        return toDTO(order);
+        List<StockReservationDTO> reservations;
+        try {
+            reservations = objectMapper.readValue(task.getLines(), new TypeReference<List<StockReservationDTO>>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать строки заказа ID " + orderId, e);
+        }
+
+        order.setTotalPrice(reserveLines(order, reservations));
+        order.setStatus(OrderStatus.CREATED);
+        placementTaskRepository.delete(task);
+        logger.info("Заказ ID {} оформлен, общая сумма: {}", orderId, order.getTotalPrice());
+    }
+
+    @Transactional
+    public void failPlacement(Long orderId, String reason) {
+        Order order = orderRepository.findById(orderId, LockModeType.PESSIMISTIC_WRITE);
+        if(order != null && order.getStatus() == OrderStatus.PENDING) {
+            order.setStatus(OrderStatus.FAILED);
+            order.setFailureReason(reason);
+            logger.warn("Заказ ID {} не оформлен: {}", orderId, reason);
+        }
+        placementTaskRepository.deleteByOrderId(orderId);
     }
 
     @Transactional
@@ -153,55 +214,83 @@ public class OrderService {
                 .orElseThrow(()->{
                     logger.error("Заказ с ID {} не найден", id);
                     return new OrderNotFoundException(id);});
+        checkModifiable(oldOrder);
 
+        oldOrder.setStatus(requestedStatus(updateOrder.status));
         oldOrder.setCustomerPhone(updateOrder.customerPhone);
         oldOrder.setDeliveryAddress(updateOrder.deliveryAddress);
-        oldOrder.setStatus(updateOrder.status);
 
-        logger.debug("Возврат товаров предыдущего заказа");
-        //Возвращаем товары
+        //Сравниваем старые и новые строки по товару: на склад уходит только разница
+        Map<Long, Integer> requested = new LinkedHashMap<>();
+        for(OrderUpdateDTO.OrderProductDTO productOrder: updateOrder.orderProducts){
+            requested.merge(productOrder.productId, productOrder.amount, Integer::sum);
+        }
+        Map<Long, OrderProduct> current = new HashMap<>();
         for(OrderProduct orderProduct : oldOrder.getOrderProducts()){
-            storageClient.orderProcessCancel(orderProduct.getProductId(),orderProduct.getAmount());
-            logger.debug("Товар ID {} возвращен в количестве {}", orderProduct.getProductId(), orderProduct.getAmount());
+            current.put(orderProduct.getProductId(), orderProduct);
         }
 
-        oldOrder.getOrderProducts().clear();
-        BigDecimal totalPrice = BigDecimal.ZERO;
-
-        for(OrderUpdateDTO.OrderProductDTO productOrder: updateOrder.orderProducts){
-            logger.debug("Добавление товара в заказ: ID {}, Количество {}", productOrder.productId, productOrder.amount);
-
-            ProductDTO product;
-            try{
-                product = storageClient.getProduct(productOrder.productId);
+        List<StockReservationDTO> toReserve = new ArrayList<>();
+        List<StockReservationDTO> toRelease = new ArrayList<>();
+        requested.forEach((productId, amount) -> {
+            OrderProduct orderProduct = current.get(productId);
+            int held = orderProduct == null ? 0 : orderProduct.getAmount();
+            if(amount > held) {
+                toReserve.add(new StockReservationDTO(productId, amount - held));
             }
-            catch(NotFoundException e){
-                logger.error("Товар с ID {} не найден", productOrder.productId);
-                throw new OrderProductException("Товар с id " + productOrder.productId + " не найден", e);
+        });
+        current.forEach((productId, orderProduct) -> {
+            int amount = requested.getOrDefault(productId, 0);
+            if(amount < orderProduct.getAmount()) {
+                toRelease.add(new StockReservationDTO(productId, orderProduct.getAmount() - amount));
             }
+        });
+        logger.debug("Заказ ID {}: докупить позиций {}, вернуть позиций {}", id, toReserve.size(), toRelease.size());
 
-            boolean hasStock = storageClient.hasStock(productOrder.productId,productOrder.amount);
-            if(!hasStock){
-                logger.error("Недостаточно товара ID {}: (имеется {}, запрошено {})",
-                        productOrder.productId,  product.amount , productOrder.amount);
-                throw new OrderStockException(productOrder.productId, product.amount, productOrder.amount );
+        Map<Long, ProductInfoDTO> products = new HashMap<>();
+        if(!toReserve.isEmpty()) {
+            for(OrderLineChecker.CheckedLine checked : orderLineChecker.check(toReserve)){
+                products.put(checked.line().productId, checked.product());
             }
+            reserve(toReserve);
+        }
 
-            storageClient.orderProcess(productOrder.productId, productOrder.amount);
-            logger.debug("Товар ID {} зарезервирован в количестве {}", productOrder.productId, productOrder.amount);
+        //Строки без изменений не трогаем, у измененных сохраняется цена на момент заказа
+        Iterator<OrderProduct> lines = oldOrder.getOrderProducts().iterator();
+        while(lines.hasNext()){
+            OrderProduct orderProduct = lines.next();
+            Integer amount = requested.get(orderProduct.getProductId());
+            if(amount == null) {
+                lines.remove();
+            }
+            else if(amount != orderProduct.getAmount()) {
+                orderProduct.setAmount(amount);
+                orderProduct.setTotalPrice(orderProduct.getPriceAtOrder().multiply(new BigDecimal(amount)));
+            }
+        }
+        requested.forEach((productId, amount) -> {
+            if(current.containsKey(productId)) {
+                return;
+            }
+            ProductInfoDTO product = products.get(productId);
             //Создаем новый товар в заказе
-            OrderProduct orderProduct = new OrderProduct(
+            oldOrder.addOrderProduct(new OrderProduct(
                     oldOrder,
-                    productOrder.productId,
-                    productOrder.amount,
+                    productId,
+                    amount,
                     product.price,
-                    product.price.multiply(new BigDecimal(productOrder.amount)),
+                    product.price.multiply(new BigDecimal(amount)),
                     product.name
-            );
-            totalPrice= totalPrice.add(orderProduct.getTotalPrice());
-            oldOrder.addOrderProduct(orderProduct);
+            ));
+        });
+
+        if(!toRelease.isEmpty()) {
+            releaseAfterCommit(toRelease);
         }
 
+        BigDecimal totalPrice = oldOrder.getOrderProducts().stream()
+                .map(OrderProduct::getTotalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
         oldOrder.setTotalPrice(totalPrice);
         logger.info("Заказ ID {} успешно обновлен. Общая сумма: {}", id, oldOrder.getTotalPrice());
 
@@ -212,10 +301,11 @@ public class OrderService {
     public OrderResponseDTO updateOrderInformation(Long id, OrderUpdateInfoDTO updateOrder) {
         Order oldOrder = orderRepository.findByIdOptional(id)
                 .orElseThrow(()->new OrderNotFoundException(id));
+        checkModifiable(oldOrder);
 
+        oldOrder.setStatus(requestedStatus(updateOrder.status));
         oldOrder.setCustomerPhone(updateOrder.customerPhone);
         oldOrder.setDeliveryAddress(updateOrder.deliveryAddress);
-        oldOrder.setStatus(updateOrder.status);
 
         return toDTO(oldOrder);
     }
@@ -224,6 +314,11 @@ public class OrderService {
     public void deleteOrder(Long id) {
         Order order = orderRepository.findByIdOptional(id)
                 .orElseThrow(()->new OrderNotFoundException(id));
+        //FAILED удалить можно: резерва у него нет, строк тоже
+        if(order.getStatus() == OrderStatus.PENDING) {
+            logger.warn("Заказ ID {} еще оформляется, удалить нельзя", id);
+            throw new OrderStateException(id, order.getStatus());
+        }
         //Возвращаем товары на склад
         for(OrderProduct orderProduct : order.getOrderProducts()){
             storageClient.orderProcessCancel(orderProduct.getProductId(),orderProduct.getAmount());
@@ -237,10 +332,11 @@ public class OrderService {
     public OrderResponseDTO addProduct(Long idOrder, OrderUpdateDTO.OrderProductDTO addProductOrder) {
         Order order = orderRepository.findByIdOptional(idOrder)
                 .orElseThrow(()-> new OrderNotFoundException(idOrder));
+        checkModifiable(order);
 
-        ProductDTO product;
+        ProductInfoDTO product;
         try{
-            product = storageClient.getProduct(addProductOrder.productId);
+            product = productInfoClient.getProduct(addProductOrder.productId);
         }
         catch(NotFoundException e){
             throw new OrderProductException("Товар с id " + addProductOrder.productId + " не найден", e);
@@ -254,7 +350,7 @@ public class OrderService {
         }
 
         if(!storageClient.hasStock(addProductOrder.productId,addProductOrder.amount)){
-            throw new OrderStockException(addProductOrder.productId, product.amount, addProductOrder.amount );
+            throw new OrderStockException(addProductOrder.productId, addProductOrder.amount);
         }
 
         storageClient.orderProcess(addProductOrder.productId, addProductOrder.amount);
@@ -277,6 +373,7 @@ public class OrderService {
     public OrderResponseDTO deleteProduct(Long idOrder, Long idOrderProduct) {
         Order order = orderRepository.findByIdOptional(idOrder)
                 .orElseThrow(()-> new OrderNotFoundException(idOrder));
+        checkModifiable(order);
 
         //Проверяем есть ли товара в заказе
         Optional<OrderProduct> productExists = order.getOrderProducts().stream()
@@ -299,6 +396,7 @@ public class OrderService {
     public OrderResponseDTO updateProductOrderAmount(Long idOrder, Long productId, int amount ) {
         Order order = orderRepository.findByIdOptional(idOrder)
                 .orElseThrow(()-> new OrderNotFoundException(idOrder));
+        checkModifiable(order);
 
         Optional <OrderProduct> orderProduct = order.getOrderProducts().stream()
                 .filter(p->p.getProductId().equals(productId)).findFirst();
@@ -334,8 +432,100 @@ public class OrderService {
         return toDTO(order);
     }
 
+    //Пока заказ PENDING, строки принадлежат OrderPlacementWorker; у FAILED на складе ничего не зарезервировано
+    private static void checkModifiable(Order order) {
+        if(order.getStatus() == OrderStatus.PENDING || order.getStatus() == OrderStatus.FAILED) {
+            logger.warn("Заказ ID {} в статусе {} изменить нельзя", order.getId(), order.getStatus());
+            throw new OrderStateException(order.getId(), order.getStatus());
+        }
+    }
+
+    //PENDING и FAILED выставляет только оформление заказа
+    private static OrderStatus requestedStatus(OrderStatus status) {
+        if(status == null || status == OrderStatus.PENDING || status == OrderStatus.FAILED) {
+            throw new BadRequestException("Недопустимый статус заказа: " + status);
+        }
+        return status;
+    }
+
+    private int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, pageMaxLimit));
+    }
+
+    //Запрашивается на одну строку больше: так видно, есть ли следующая страница
+    private OrderPage toPage(List<Order> orders, int pageSize) {
+        boolean hasNext = orders.size() > pageSize;
+        List<OrderResponseDTO> items = orders.stream()
+                .limit(pageSize)
+                .map(this::toDTO)
+                .toList();
+        String nextCursor = null;
+        if(hasNext) {
+            OrderResponseDTO last = items.get(items.size() - 1);
+            nextCursor = new OrderCursor(last.createDate, last.orderId).toString();
+        }
+        return new OrderPage(items, nextCursor);
+    }
+
+    //Курсор страницы: дата создания и id последнего отданного заказа, например 2025-01-01T10:15:30.123456_42
+    private record OrderCursor(LocalDateTime createDate, Long id) {
+        private static final OrderCursor FIRST = new OrderCursor(null, null);
+
+        static OrderCursor parse(String after) {
+            if(after == null || after.isBlank()) {
+                return FIRST;
+            }
+            int separator = after.lastIndexOf('_');
+            try {
+                return new OrderCursor(LocalDateTime.parse(after.substring(0, separator)),
+                        Long.parseLong(after.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Некорректный курсор: " + after);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return createDate + "_" + id;
+        }
+    }
+
+    private List<StockReservationDTO> toReservations(OrderCreateDTO createOrder) {
+        List<StockReservationDTO> reservations = new ArrayList<>();
+        for(OrderCreateDTO.OrderProductDTO productOrder: createOrder.orderProducts){
+            reservations.add(new StockReservationDTO(productOrder.productId, productOrder.amount));
+        }
+        return reservations;
+    }
+
+    //Проверяет строки, добавляет их в заказ и резервирует всю корзину; возвращает сумму строк
+    private BigDecimal reserveLines(Order order, List<StockReservationDTO> reservations) {
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        for(OrderLineChecker.CheckedLine checked : orderLineChecker.check(reservations)){
+            StockReservationDTO line = checked.line();
+            ProductInfoDTO product = checked.product();
+
+            //Создаем новый товар в заказе
+            OrderProduct orderProduct = new OrderProduct(
+                    order,
+                    line.productId,
+                    line.amount,
+                    product.price,
+                    product.price.multiply(new BigDecimal(line.amount)),
+                    product.name
+            );
+            totalPrice= totalPrice.add(orderProduct.getTotalPrice());
+            order.addOrderProduct(orderProduct);
+        }
+
+        //Резервируем всю корзину одним запросом и одной транзакцией на складе
+        reserve(reservations);
+        logger.debug("Зарезервировано позиций: {}", reservations.size());
+        return totalPrice;
+    }
+
     private OrderResponseDTO toDTO(Order order) {
-        return new OrderResponseDTO(
+        OrderResponseDTO dto = new OrderResponseDTO(
                 order.getId(),
                 order.getCustomerPhone(),
                 order.getTotalPrice(),
@@ -344,6 +534,8 @@ public class OrderService {
                 order.getOrderProducts().stream().map(this::toProductDTO).toList(),
                 order.getStatus()
         );
+        dto.failureReason = order.getFailureReason();
+        return dto;
     }
 
     private OrderResponseDTO.OrderProductDTO toProductDTO(OrderProduct orderProduct) {
@@ -355,4 +547,50 @@ public class OrderService {
                 orderProduct.getProductName()
         );
     }
+
+    //Отмена по ключу регистрируется до запроса: после таймаута неизвестно, списал ли склад товар.
+    //Если заказ не сохранится, склад вернет списанное под ключом или закроет ключ для опоздавшего резерва
+    private void reserve(List<StockReservationDTO> reservations) {
+        String reservationKey = UUID.randomUUID().toString();
+        releaseOnRollback(reservationKey);
+        storageClient.reserveBatch(reservationKey, reservations);
+    }
+
+    private void releaseOnRollback(String reservationKey) {
+        afterCompletion(false, () -> {
+            logger.info("Отмена резерва на складе по ключу {}", reservationKey);
+            try {
+                storageClient.releaseReservation(reservationKey);
+            } catch (RuntimeException e) {
+                logger.error("Не удалось отменить резерв на складе по ключу {}", reservationKey, e);
+            }
+        });
+    }
+
+    //Уменьшенные строки возвращаются на склад только после коммита, при откате резерв остается за заказом
+    private void releaseAfterCommit(List<StockReservationDTO> reservations) {
+        afterCompletion(true, () -> {
+            logger.info("Возврат резерва на склад, позиций: {}", reservations.size());
+            try {
+                storageClient.releaseBatch(reservations);
+            } catch (RuntimeException e) {
+                logger.error("Не удалось вернуть резерв на склад, позиций: {}", reservations.size(), e);
+            }
+        });
+    }
+
+    private void afterCompletion(boolean onCommit, Runnable action) {
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if((status == Status.STATUS_COMMITTED) == onCommit) {
+                    action.run();
+                }
+            }
+        });
+    }
 }
@@ -0,0 +1,137 @@
+package com.market.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+//Нагрузочный замер createOrder против запущенных order-service и storage-service.
+//Запускается дважды, на виртуальных потоках и на пуле worker-потоков:
+//  order-service по умолчанию, затем с -Dquarkus.virtual-threads.enabled=false
+//mvn test -Dtest=ExecutionModeBenchmark -Dbenchmark=true -Dbenchmark.mode=virtual -Dbenchmark.products=1,2,3
+//Каждый заказ сразу удаляется, товары возвращаются на склад
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ExecutionModeBenchmark {
+    private static final Pattern ORDER_ID = Pattern.compile("\"orderId\"\\s*:\\s*(\\d+)");
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 400);
+    private static final int WARMUP = Integer.getInteger("benchmark.warmup", 500);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 10000);
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Test
+    public void createOrderUnderLoad() throws InterruptedException {
+        URI orders = URI.create(System.getProperty("benchmark.order-url", "http://localhost:9092/api/orders"));
+        String body = orderBody(System.getProperty("benchmark.products", "1"));
+
+        run(orders, body, WARMUP);
+        long start = System.nanoTime();
+        Result result = run(orders, body, REQUESTS);
+        long elapsed = System.nanoTime() - start;
+        report(System.getProperty("benchmark.mode", "current"), result, elapsed);
+    }
+
+    private Result run(URI orders, String body, int requests) throws InterruptedException {
+        AtomicInteger remaining = new AtomicInteger(requests);
+        AtomicInteger errors = new AtomicInteger();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENCY; i++) {
+                clients.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long start = System.nanoTime();
+                        String orderId = create(orders, body);
+                        long latency = System.nanoTime() - start;
+                        if (orderId == null) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        latencies.add(latency);
+                        delete(orders, orderId);
+                    }
+                });
+            }
+            clients.shutdown();
+            clients.awaitTermination(1, TimeUnit.HOURS);
+        }
+        return new Result(latencies.stream().mapToLong(Long::longValue).toArray(), errors.get());
+    }
+
+    //Замеряется только создание: возвращает id заказа, пустую строку без id в ответе, null при ошибке
+    private String create(URI orders, String body) {
+        try {
+            HttpResponse<String> created = http.send(HttpRequest.newBuilder(orders)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (created.statusCode() != 201) {
+                return null;
+            }
+            Matcher id = ORDER_ID.matcher(created.body());
+            return id.find() ? id.group(1) : "";
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    //Удаление возвращает остатки на склад и идет после замера
+    private void delete(URI orders, String orderId) {
+        if (orderId.isEmpty()) {
+            return;
+        }
+        try {
+            http.send(HttpRequest.newBuilder(orders.resolve(orders.getPath() + "/" + orderId)).DELETE().build(),
+                    HttpResponse.BodyHandlers.discarding());
+        } catch (Exception e) {
+            //Неудачная очистка не влияет на замер создания
+        }
+    }
+
+    private static String orderBody(String products) {
+        String lines = Arrays.stream(products.split(","))
+                .map(String::trim)
+                .map(id -> "{\"productId\":" + id + ",\"amount\":1}")
+                .collect(Collectors.joining(","));
+        return "{\"customerPhone\":\"79001234567\",\"deliveryAddress\":\"benchmark\",\"orderProducts\":[" + lines + "]}";
+    }
+
+    private static void report(String mode, Result result, long elapsedNanos) {
+        long[] sorted = result.latencies().clone();
+        Arrays.sort(sorted);
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%s: %d заказов, %d ошибок, параллельно %d, %.0f заказов/с",
+                mode, sorted.length, result.errors(), CONCURRENCY, sorted.length / (elapsedNanos / 1e9)));
+        if (sorted.length > 0) {
+            lines.add(String.format("  p50 %.2f мс, p99 %.2f мс, max %.2f мс",
+                    millis(sorted[sorted.length / 2]),
+                    millis(sorted[(int) (sorted.length * 0.99)]),
+                    millis(sorted[sorted.length - 1])));
+        }
+        lines.forEach(System.out::println);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private record Result(long[] latencies, int errors) {}
+}
@@ -0,0 +1,101 @@
+package com.market.benchmark;
+
+import com.market.client.GrpcStorageClient;
+import com.market.client.StorageClient;
+import com.market.dto.StockReservationDTO;
+import com.market.exception.api.StorageClientErrorHandler;
+import com.market.grpc.storage.StorageGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+//Ручной замер REST и gRPC на пути createOrder против запущенного storage-service:
+//mvn test -Dtest=StorageTransportBenchmark -Dbenchmark=true -Dbenchmark.products=1,2,3
+//Резерв сразу возвращается через release-batch, остатки на складе не меняются
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class StorageTransportBenchmark {
+    private static final int WARMUP = Integer.getInteger("benchmark.warmup", 200);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 2000);
+
+    @Test
+    public void compareTransports() {
+        List<Long> productIds = Arrays.stream(System.getProperty("benchmark.products", "1").split(","))
+                .map(String::trim)
+                .map(Long::valueOf)
+                .toList();
+
+        StorageClient rest = RestClientBuilder.newBuilder()
+                .baseUri(URI.create(System.getProperty("benchmark.rest-url", "http://localhost:9091/api/products")))
+                .register(StorageClientErrorHandler.class)
+                .build(StorageClient.class);
+
+        ManagedChannel channel = ManagedChannelBuilder
+                .forAddress(System.getProperty("benchmark.grpc-host", "localhost"),
+                        Integer.getInteger("benchmark.grpc-port", 9093))
+                .usePlaintext()
+                .build();
+        StorageClient grpc = new GrpcStorageClient(StorageGrpc.newBlockingStub(channel), Duration.ofSeconds(5));
+
+        try {
+            report("REST", run(rest, productIds));
+            report("gRPC", run(grpc, productIds));
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    private static long[] run(StorageClient client, List<Long> productIds) {
+        List<StockReservationDTO> reservations = productIds.stream()
+                .map(id -> new StockReservationDTO(id, 1))
+                .toList();
+        for (int i = 0; i < WARMUP; i++) {
+            createOrderPath(client, productIds, reservations);
+        }
+        long[] latencies = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            createOrderPath(client, productIds, reservations);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    //Те же вызовы, что делает OrderService.createOrder, плюс компенсация резерва
+    private static void createOrderPath(StorageClient client, List<Long> productIds, List<StockReservationDTO> reservations) {
+        for (Long id : productIds) {
+            client.getProduct(id);
+            client.hasStock(id, 1);
+        }
+        String reservationKey = UUID.randomUUID().toString();
+        client.reserveBatch(reservationKey, reservations);
+        client.releaseReservation(reservationKey);
+    }
+
+    private static void report(String transport, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        long total = Arrays.stream(sorted).sum();
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%s: %d итераций, %.0f оп/с", transport, sorted.length,
+                sorted.length / (total / 1e9)));
+        lines.add(String.format("  p50 %.2f мс, p99 %.2f мс, max %.2f мс",
+                millis(sorted[sorted.length / 2]),
+                millis(sorted[(int) (sorted.length * 0.99)]),
+                millis(sorted[sorted.length - 1])));
+        lines.forEach(System.out::println);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
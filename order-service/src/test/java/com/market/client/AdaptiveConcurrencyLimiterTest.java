@@ -0,0 +1,67 @@
+package com.market.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+
+    private AdaptiveConcurrencyLimiter limiter(int initial) {
+        return new AdaptiveConcurrencyLimiter(initial, 2, 10, 500, TimeUnit.MILLISECONDS, 0.5);
+    }
+
+    @Test
+    public void shouldRejectAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.inFlight());
+    }
+
+    @Test
+    public void shouldGrowOnFastCallsWhenUtilized() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4);
+        for(int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        limiter.release(FAST, false);
+
+        assertEquals(5, limiter.limit());
+        assertEquals(3, limiter.inFlight());
+    }
+
+    @Test
+    public void shouldNotGrowWhenIdle() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8);
+        assertTrue(limiter.tryAcquire());
+
+        limiter.release(FAST, false);
+
+        assertEquals(8, limiter.limit());
+    }
+
+    @Test
+    public void shouldBackOffOnSlowOrDroppedCallsDownToMin() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(SLOW, false);
+        assertEquals(4, limiter.limit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(FAST, true);
+        assertEquals(2, limiter.limit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(FAST, true);
+        assertEquals(2, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+}
@@ -0,0 +1,69 @@
+package com.market.client;
+
+import com.google.protobuf.Empty;
+import com.market.dto.ProductDTO;
+import com.market.dto.StockReservationDTO;
+import com.market.exception.api.InsufficientStockException;
+import com.market.exception.api.ProductNotFoundException;
+import com.market.grpc.storage.Product;
+import com.market.grpc.storage.StorageGrpc;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class GrpcStorageClientTest {
+    private StorageGrpc.StorageBlockingStub stub;
+    private GrpcStorageClient client;
+
+    @BeforeEach
+    public void setup() {
+        stub = mock(StorageGrpc.StorageBlockingStub.class);
+        when(stub.withDeadlineAfter(anyLong(), any())).thenReturn(stub);
+        client = new GrpcStorageClient(stub, Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void shouldMapProduct() {
+        when(stub.getProduct(any())).thenReturn(Product.newBuilder()
+                .setId(1L).setName("Test product").setCategoryId(2L).setCategoryName("Test category")
+                .setAmount(3).setPrice("10.50").build());
+
+        ProductDTO product = client.getProduct(1L);
+
+        assertEquals("Test product", product.name);
+        assertEquals(2L, product.category.id());
+        assertEquals(new BigDecimal("10.50"), product.price);
+    }
+
+    @Test
+    public void shouldMapStatusCodesToApiExceptions() {
+        Metadata trailers = new Metadata();
+        trailers.put(Metadata.Key.of("product-id", Metadata.ASCII_STRING_MARSHALLER), "7");
+        when(stub.reserveBatch(any())).thenThrow(Status.FAILED_PRECONDITION.asRuntimeException(trailers));
+        when(stub.getProduct(any())).thenThrow(Status.NOT_FOUND.asRuntimeException(trailers));
+
+        InsufficientStockException insufficient = assertThrows(InsufficientStockException.class,
+                () -> client.reserveBatch("key-1", List.of(new StockReservationDTO(7L, 1))));
+        assertTrue(insufficient.getMessage().contains("7"));
+        assertThrows(ProductNotFoundException.class, () -> client.getProduct(7L));
+    }
+
+    @Test
+    public void shouldSendReservationKey() {
+        when(stub.reserveBatch(any())).thenReturn(Empty.getDefaultInstance());
+
+        client.reserveBatch("key-1", List.of(new StockReservationDTO(7L, 1)));
+
+        verify(stub).reserveBatch(argThat(batch -> batch.getReservationKey().equals("key-1")
+                && batch.getLinesCount() == 1));
+    }
+}
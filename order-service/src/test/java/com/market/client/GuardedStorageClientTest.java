@@ -0,0 +1,92 @@
+package com.market.client;
+
+import com.market.exception.api.InsufficientStockException;
+import com.market.exception.api.StorageClientErrorHandler;
+import com.market.exception.api.StorageOverloadedException;
+import com.market.exception.api.StorageUnavailableException;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+//Только адаптивный предел: breaker и таймауты создаются в @PostConstruct внутри Quarkus
+public class GuardedStorageClientTest {
+    private StorageClient delegate;
+    private ProductCardClient productCardClient;
+    private AdaptiveConcurrencyLimiter limiter;
+    private GuardedStorageClient client;
+
+    @BeforeEach
+    public void setup() {
+        delegate = mock(StorageClient.class);
+        productCardClient = mock(ProductCardClient.class);
+        limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 500, TimeUnit.MILLISECONDS, 0.5);
+        client = new GuardedStorageClient(delegate, productCardClient, limiter);
+    }
+
+    @Test
+    public void shouldRejectWithoutCallingStorageWhenLimitReached() {
+        for(int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        assertThrows(StorageOverloadedException.class, () -> client.hasStock(1L, 1));
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    public void shouldBackOffWhenStorageUnavailable() {
+        when(delegate.hasStock(1L, 1)).thenThrow(new StorageUnavailableException("Склад недоступен: 503"));
+
+        assertThrows(StorageUnavailableException.class, () -> client.hasStock(1L, 1));
+
+        assertEquals(2, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    //500 склада (например, упала его база) - такой же отказ, как 503: предел снижается, breaker его считает
+    @Test
+    public void shouldBackOffOnInternalServerError() {
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(500);
+        when(response.readEntity(String.class)).thenReturn("db down");
+        RuntimeException failure = new StorageClientErrorHandler().toThrowable(response);
+        when(delegate.hasStock(1L, 1)).thenThrow(failure);
+
+        assertInstanceOf(StorageUnavailableException.class, failure);
+        assertThrows(StorageUnavailableException.class, () -> client.hasStock(1L, 1));
+
+        assertEquals(2, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void shouldKeepLimitOnBusinessErrors() {
+        doThrow(new InsufficientStockException(1L)).when(delegate).orderProcess(1L, 5);
+
+        assertThrows(InsufficientStockException.class, () -> client.orderProcess(1L, 5));
+
+        assertEquals(4, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    //Условный GET карточки ограничивается тем же пределом, что и остальные вызовы
+    @Test
+    public void shouldLimitConditionalProductFetch() {
+        when(productCardClient.getProductConditional(1L, null))
+                .thenThrow(new StorageUnavailableException("Склад недоступен: 503"));
+
+        assertThrows(StorageUnavailableException.class, () -> client.getProductConditional(1L, null));
+        assertEquals(2, limiter.limit());
+
+        for(int i = 0; i < 2; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertThrows(StorageOverloadedException.class, () -> client.getProductConditional(1L, "\"1\""));
+        verify(productCardClient, never()).getProductConditional(1L, "\"1\"");
+    }
+}
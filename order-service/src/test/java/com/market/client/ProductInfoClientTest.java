@@ -0,0 +1,122 @@
+package com.market.client;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.market.dto.ProductDTO;
+import com.market.dto.ProductInfoDTO;
+import com.market.exception.api.StorageUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+public class ProductInfoClientTest {
+    private static final long AFTER_TTL = Duration.ofMinutes(6).toNanos();
+
+    @Inject
+    ProductInfoClient productInfoClient;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @InjectMock
+    @RestClient
+    ProductCardClient productCardClient;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @BeforeEach
+    public void setup() {
+        productInfoClient.useTicker(now::get);
+    }
+
+    @AfterEach
+    public void restoreTicker() {
+        productInfoClient.useTicker(Ticker.systemTicker());
+    }
+
+    @Test
+    public void shouldServeFromCacheWithoutStock() {
+        when(productCardClient.getProductConditional(7L, null)).thenReturn(ok(7L, "\"2-3\""));
+
+        ProductInfoDTO first = productInfoClient.getProduct(7L);
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        ProductInfoDTO second = productInfoClient.getProduct(7L);
+
+        assertSame(first, second);
+        assertEquals("Test product", first.name);
+        assertEquals(BigDecimal.TEN, first.price);
+        verify(productCardClient, times(1)).getProductConditional(eq(7L), any());
+    }
+
+    @Test
+    public void shouldRevalidateWithEtagAfterTtl() {
+        Response notModified = mock(Response.class);
+        when(notModified.getStatus()).thenReturn(304);
+        when(productCardClient.getProductConditional(8L, null)).thenReturn(ok(8L, "\"2-3\""));
+        when(productCardClient.getProductConditional(8L, "\"2-3\"")).thenReturn(notModified);
+
+        ProductInfoDTO product = productInfoClient.getProduct(8L);
+        now.addAndGet(AFTER_TTL);
+
+        assertSame(product, productInfoClient.getProduct(8L));
+        verify(productCardClient).getProductConditional(8L, "\"2-3\"");
+        verify(notModified, never()).readEntity(ProductDTO.class);
+    }
+
+    @Test
+    public void shouldServeStaleWhenStorageFails() {
+        when(productCardClient.getProductConditional(9L, null)).thenReturn(ok(9L, "\"1-5\""));
+        when(productCardClient.getProductConditional(9L, "\"1-5\"")).thenThrow(new StorageUnavailableException("Склад недоступен: 503"));
+        double staleBefore = meterRegistry.get("product.info.stale.served").counter().count();
+
+        ProductInfoDTO product = productInfoClient.getProduct(9L);
+        now.addAndGet(AFTER_TTL);
+
+        assertSame(product, productInfoClient.getProduct(9L));
+        assertEquals(staleBefore + 1, meterRegistry.get("product.info.stale.served").counter().count());
+    }
+
+    @Test
+    public void shouldBackOffAfterFailedRevalidation() {
+        when(productCardClient.getProductConditional(10L, null)).thenReturn(ok(10L, "\"1-2\""));
+        when(productCardClient.getProductConditional(10L, "\"1-2\"")).thenThrow(new StorageUnavailableException("Склад недоступен: 503"));
+
+        ProductInfoDTO product = productInfoClient.getProduct(10L);
+        now.addAndGet(AFTER_TTL);
+        productInfoClient.getProduct(10L);
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        assertSame(product, productInfoClient.getProduct(10L));
+        verify(productCardClient, times(1)).getProductConditional(10L, "\"1-2\"");
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertSame(product, productInfoClient.getProduct(10L));
+        verify(productCardClient, times(2)).getProductConditional(10L, "\"1-2\"");
+    }
+
+    private static Response ok(Long id, String etag) {
+        ProductDTO product = new ProductDTO(id, "Test product", new ProductDTO.CategoryDTO(1L, "Test category"),
+                3, "Test Description", BigDecimal.TEN);
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(200);
+        when(response.readEntity(ProductDTO.class)).thenReturn(product);
+        when(response.getHeaderString(HttpHeaders.ETAG)).thenReturn(etag);
+        return response;
+    }
+}
@@ -0,0 +1,85 @@
+package com.market.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+//Планы запросов OrderRepository на PostgreSQL с примененными миграциями Liquibase (локальная база order).
+//enable_seqscan=off оставляет полный проход только там, где нет подходящего индекса, поэтому размер таблиц не важен
+//mvn test -Dtest=OrderQueryPlanTest -Dpg-explain=true -Dpg.url=jdbc:postgresql://localhost:5432/order
+@EnabledIfSystemProperty(named = "pg-explain", matches = "true")
+public class OrderQueryPlanTest {
+    private static Connection connection;
+
+    @BeforeAll
+    public static void connect() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("pg.url", "jdbc:postgresql://localhost:5432/order"),
+                System.getProperty("pg.user", "postgres"),
+                System.getProperty("pg.password", "root"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+        }
+    }
+
+    @AfterAll
+    public static void disconnect() throws SQLException {
+        if(connection != null) {
+            connection.close();
+        }
+    }
+
+    //SQL, который Hibernate строит для запросов OrderRepository и OrderPlacementTaskRepository
+    @ParameterizedTest
+    @ValueSource(strings = {
+            //findPage
+            "SELECT o.id FROM orders o WHERE (o.create_date, o.id) > ('2025-01-01 00:00', 1) " +
+                    "ORDER BY o.create_date, o.id LIMIT 101",
+            //findPageByCustomerPhone
+            "SELECT o.id FROM orders o WHERE o.customer_phone = '79001234567' " +
+                    "AND (o.create_date, o.id) > ('2025-01-01 00:00', 1) ORDER BY o.create_date, o.id LIMIT 101",
+            //findPageByDeliveryAddress
+            "SELECT o.id FROM orders o WHERE o.delivery_address = 'Test delivery address' " +
+                    "AND (o.create_date, o.id) > ('2025-01-01 00:00', 1) ORDER BY o.create_date, o.id LIMIT 101",
+            //findRecentOrders
+            "SELECT o.id FROM orders o ORDER BY o.create_date DESC LIMIT 10",
+            //fetch join строк страницы
+            "SELECT o.id, op.id FROM orders o LEFT JOIN order_products op ON op.order_id = o.id " +
+                    "WHERE o.id IN (1, 2, 3) ORDER BY o.create_date, o.id",
+            //findByProductId
+            "SELECT o.id, op.id FROM orders o LEFT JOIN order_products op ON op.order_id = o.id " +
+                    "WHERE o.id IN (SELECT op2.order_id FROM order_products op2 WHERE op2.product_id = 1)",
+            //OrderPlacementTaskRepository.lockDue
+            "SELECT t.id FROM order_placement_queue t WHERE t.next_attempt_at <= now() " +
+                    "ORDER BY t.next_attempt_at, t.id LIMIT 32 FOR UPDATE SKIP LOCKED"
+    })
+    public void queryDoesNotScanTable(String sql) throws SQLException {
+        List<String> plan = explain(sql);
+
+        assertFalse(plan.stream().anyMatch(line -> line.contains("Seq Scan")),
+                () -> "Полный проход таблицы:\n" + String.join("\n", plan));
+    }
+
+    private static List<String> explain(String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("EXPLAIN " + sql)) {
+            while(rows.next()) {
+                plan.add(rows.getString(1));
+            }
+        }
+        return plan;
+    }
+}
@@ -5,11 +5,15 @@ import com.market.dto.OrderResponseDTO;
 import com.market.dto.OrderUpdateDTO;
 import com.market.dto.OrderUpdateInfoDTO;
 import com.market.enums.OrderStatus;
+import com.market.exception.api.StorageOverloadedException;
+import com.market.exception.order.OrderStateException;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.RestAssured;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -58,8 +62,8 @@ public class OrderResourceTest {
 
     @Test
     public void getAllOrders() {
-        when(orderService.findAll())
-                .thenReturn(List.of(orderResponse));
+        when(orderService.findAll(null, 100))
+                .thenReturn(new OrderService.OrderPage(List.of(orderResponse), null));
 
         given()
                 .when().get()
@@ -72,6 +76,21 @@ public class OrderResourceTest {
                 .body("[0].orderProducts[0].productId", is(orderResponse.orderProducts.getFirst().productId().intValue()));
     }
 
+    @Test
+    public void getAllOrdersWithCursor() {
+        when(orderService.findAll("2020-01-01T00:00_1", 1))
+                .thenReturn(new OrderService.OrderPage(List.of(orderResponse), "2020-01-01T00:00_2"));
+
+        given()
+                .queryParam("after", "2020-01-01T00:00_1")
+                .queryParam("limit", 1)
+                .when().get()
+                .then()
+                .statusCode(200)
+                .header("X-Next-Cursor", "2020-01-01T00:00_2")
+                .body("size()", is(1));
+    }
+
     @Test
     public void getOrderById(){
         when(orderService.findById(orderResponse.orderId))
@@ -90,10 +109,25 @@ public class OrderResourceTest {
                     .body("orderProducts[0].productId", is(orderResponse.orderProducts.getFirst().productId().intValue()));
     }
 
+    @Test
+    public void getOrderByIdLongPoll(){
+        when(orderService.findById(orderResponse.orderId))
+                .thenReturn(orderResponse);
+
+        given()
+                .pathParam("id",orderResponse.orderId.intValue())
+                .queryParam("wait", 10)
+                .when().get("/{id}")
+                .then()
+                .statusCode(200)
+                    .body("orderId", is(orderResponse.orderId.intValue()))
+                    .body("status", is(orderResponse.status.name()));
+    }
+
     @Test
     public void getOrderByCustomerPhone(){
-        when(orderService.findByCustomerPhone(orderResponse.customerPhone))
-                .thenReturn(List.of(orderResponse));
+        when(orderService.findByCustomerPhone(orderResponse.customerPhone, null, 100))
+                .thenReturn(new OrderService.OrderPage(List.of(orderResponse), null));
 
         given()
                 .queryParam("customerPhone",orderResponse.customerPhone)
@@ -111,8 +145,8 @@ public class OrderResourceTest {
 
     @Test
     public void getOrderByDeliveryAddress(){
-        when(orderService.findByDeliveryAddress(orderResponse.deliveryAddress))
-                .thenReturn(List.of(orderResponse));
+        when(orderService.findByDeliveryAddress(orderResponse.deliveryAddress, null, 100))
+                .thenReturn(new OrderService.OrderPage(List.of(orderResponse), null));
 
         given()
                 .queryParam("deliveryAddress",orderResponse.deliveryAddress)
@@ -197,6 +231,63 @@ public class OrderResourceTest {
                     .body("orderProducts[0].productId", is(orderResponse.orderProducts.getFirst().productId().intValue()));
     }
 
+    @Test
+    public void createOrderAsync(){
+        OrderCreateDTO orderCreateDTO = new OrderCreateDTO("12345678912", "Test delivery address",
+                List.of(new OrderCreateDTO.OrderProductDTO(1L, 1)));
+        orderResponse.status = OrderStatus.PENDING;
+        orderResponse.orderProducts = List.of();
+
+        when(orderService.acceptOrder(Mockito.any(OrderCreateDTO.class)))
+                .thenReturn(orderResponse);
+
+        given()
+                .body(orderCreateDTO)
+                .contentType("application/json")
+                .header("Prefer", "respond-async")
+                .when().post()
+                .then()
+                .statusCode(Response.Status.ACCEPTED.getStatusCode())
+                .header(HttpHeaders.LOCATION, endsWith("/api/orders/" + orderResponse.orderId))
+                    .body("orderId", is(orderResponse.orderId.intValue()))
+                    .body("status", is(OrderStatus.PENDING.name()));
+        verify(orderService, never()).createOrder(Mockito.any(OrderCreateDTO.class));
+    }
+
+    @Test
+    public void createOrderWhenStorageCircuitOpen(){
+        OrderCreateDTO orderCreateDTO = new OrderCreateDTO("12345678912", "Test delivery address",
+                List.of(new OrderCreateDTO.OrderProductDTO(1L, 1)));
+
+        when(orderService.createOrder(Mockito.any(OrderCreateDTO.class)))
+                .thenThrow(new CircuitBreakerOpenException("storage"));
+
+        given()
+                .body(orderCreateDTO)
+                .contentType("application/json")
+                .when().post()
+                .then()
+                .statusCode(Response.Status.SERVICE_UNAVAILABLE.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, notNullValue());
+    }
+
+    @Test
+    public void createOrderWhenStorageOverloaded(){
+        OrderCreateDTO orderCreateDTO = new OrderCreateDTO("12345678912", "Test delivery address",
+                List.of(new OrderCreateDTO.OrderProductDTO(1L, 1)));
+
+        when(orderService.createOrder(Mockito.any(OrderCreateDTO.class)))
+                .thenThrow(new StorageOverloadedException(4));
+
+        given()
+                .body(orderCreateDTO)
+                .contentType("application/json")
+                .when().post()
+                .then()
+                .statusCode(Response.Status.SERVICE_UNAVAILABLE.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, notNullValue());
+    }
+
     @Test
     public void updateOrder(){
         OrderUpdateDTO orderUpdateDTO = new OrderUpdateDTO(
@@ -230,6 +321,27 @@ public class OrderResourceTest {
                     .body("orderProducts[0].productId", is(orderResponse.orderProducts.getFirst().productId().intValue()));
     }
 
+    @Test
+    public void updateOrderWhileOrderIsPending(){
+        OrderUpdateDTO orderUpdateDTO = new OrderUpdateDTO(
+                "12345678912",
+                "Test delivery address",
+                OrderStatus.DELIVERED,
+                List.of(new OrderUpdateDTO.OrderProductDTO(1L, 1))
+        );
+
+        when(orderService.updateOrder(eq(1L), Mockito.any(OrderUpdateDTO.class)))
+                .thenThrow(new OrderStateException(1L, OrderStatus.PENDING));
+
+        given()
+                .body(orderUpdateDTO)
+                .contentType("application/json")
+                .pathParam("id", 1)
+                .when().put("/{id}")
+                .then()
+                .statusCode(Response.Status.CONFLICT.getStatusCode());
+    }
+
     @Test
     public void updateOrderInformation(){
         OrderUpdateInfoDTO orderUpdateDTO = new OrderUpdateInfoDTO(
@@ -0,0 +1,71 @@
+package com.market.resource;
+
+import com.market.client.ProductInfoClient;
+import com.market.client.StorageClient;
+import com.market.dto.OrderCreateDTO;
+import com.market.dto.ProductDTO;
+import com.market.dto.ProductInfoDTO;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit5.virtual.ShouldNotPin;
+import io.quarkus.test.junit5.virtual.VirtualThreadUnit;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+//Путь createOrder через Hibernate и пул соединений не должен закреплять carrier-поток
+@QuarkusTest
+@VirtualThreadUnit
+@ShouldNotPin
+public class OrderResourceVirtualThreadTest {
+    @InjectMock
+    StorageClient storageClient;
+
+    @InjectMock
+    ProductInfoClient productInfoClient;
+
+    @BeforeEach
+    public void setup() {
+        RestAssured.basePath = "/api/orders";
+    }
+
+    @Test
+    public void createOrderRunsOnVirtualThread() {
+        AtomicBoolean virtual = new AtomicBoolean();
+        when(productInfoClient.getProduct(anyLong())).thenAnswer(invocation -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            return new ProductInfoDTO(1L, "test", new ProductDTO.CategoryDTO(1L, "test"), BigDecimal.TEN);
+        });
+        when(storageClient.hasStock(anyLong(), anyInt())).thenReturn(true);
+
+        OrderCreateDTO order = new OrderCreateDTO("79001234567", "Test delivery address",
+                List.of(new OrderCreateDTO.OrderProductDTO(1L, 2)));
+
+        given()
+                .contentType("application/json")
+                .body(order)
+                .when().post()
+                .then()
+                    .statusCode(201);
+
+        assertTrue(virtual.get());
+    }
+
+    @Test
+    public void listOrdersDoesNotPin() {
+        given()
+                .when().get()
+                .then()
+                    .statusCode(200);
+    }
+}
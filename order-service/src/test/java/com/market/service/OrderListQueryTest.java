@@ -0,0 +1,138 @@
+package com.market.service;
+
+import com.market.dto.OrderResponseDTO;
+import com.market.model.Order;
+import com.market.model.OrderProduct;
+import com.market.repository.OrderRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Списки заказов должны читаться постоянным числом запросов, независимо от числа заказов
+@QuarkusTest
+@TestProfile(OrderListQueryTest.SchemaProfile.class)
+public class OrderListQueryTest {
+    private static final int ORDERS = 5;
+
+    //Схема создается Hibernate: в H2 нет типа order_status из миграции Liquibase
+    public static class SchemaProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "quarkus.datasource.jdbc.url",
+                    "jdbc:h2:mem:orderlist;INIT=CREATE DOMAIN IF NOT EXISTS order_status AS VARCHAR(20)",
+                    "quarkus.liquibase.migrate-at-start", "false",
+                    "quarkus.hibernate-orm.database.generation", "drop-and-create",
+                    "quarkus.hibernate-orm.statistics", "true"
+            );
+        }
+    }
+
+    @Inject
+    OrderService orderService;
+
+    @Inject
+    OrderRepository orderRepository;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @BeforeEach
+    public void setup() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            for(int i = 0; i < ORDERS; i++) {
+                Order order = new Order("79001234567", BigDecimal.valueOf(3), LocalDateTime.now(), "Test delivery address");
+                order.addOrderProduct(new OrderProduct(order, 1L, 1, BigDecimal.ONE, BigDecimal.ONE, "Test product 1"));
+                order.addOrderProduct(new OrderProduct(order, 2L + i, 1, BigDecimal.TWO, BigDecimal.TWO, "Test product 2"));
+                orderRepository.persist(order);
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanup() {
+        QuarkusTransaction.requiringNew().run(() -> orderRepository.listAll().forEach(orderRepository::delete));
+    }
+
+    //Страница: запрос id по курсору и fetch join строк
+    @Test
+    public void findAllPageUsesTwoStatements() {
+        List<OrderResponseDTO> orders = countStatements(2, () -> orderService.findAll(null, 100).items());
+
+        assertEquals(ORDERS, orders.size());
+        orders.forEach(order -> assertEquals(2, order.orderProducts.size()));
+    }
+
+    @Test
+    public void findByCustomerPhonePageUsesTwoStatements() {
+        List<OrderResponseDTO> orders = countStatements(2, () -> orderService.findByCustomerPhone("79001234567", null, 100).items());
+
+        assertEquals(ORDERS, orders.size());
+        orders.forEach(order -> assertEquals(2, order.orderProducts.size()));
+    }
+
+    @Test
+    public void findByDeliveryAddressPageUsesTwoStatements() {
+        List<OrderResponseDTO> orders = countStatements(2, () -> orderService.findByDeliveryAddress("Test delivery address", null, 100).items());
+
+        assertEquals(ORDERS, orders.size());
+    }
+
+    @Test
+    public void findByProductIdKeepsAllLinesOfOrder() {
+        List<OrderResponseDTO> orders = countStatements(1, () -> orderService.findByProductId(1L));
+
+        assertEquals(ORDERS, orders.size());
+        orders.forEach(order -> assertEquals(2, order.orderProducts.size()));
+    }
+
+    @Test
+    public void findRecentOrdersUsesTwoStatements() {
+        List<OrderResponseDTO> orders = countStatements(2, () -> orderService.findRecentOrders(3));
+
+        assertEquals(3, orders.size());
+        orders.forEach(order -> assertEquals(2, order.orderProducts.size()));
+    }
+
+    @Test
+    public void cursorWalksAllOrdersWithoutGapsOrRepeats() {
+        List<Long> seen = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            String cursor = after;
+            OrderService.OrderPage page = QuarkusTransaction.requiringNew().call(() -> orderService.findAll(cursor, 2));
+            page.items().forEach(order -> seen.add(order.orderId));
+            after = page.nextCursor();
+            pages++;
+        } while(after != null);
+
+        assertEquals(3, pages);
+        assertEquals(ORDERS, seen.size());
+        assertEquals(seen.stream().sorted().toList(), seen);
+    }
+
+    private <T> T countStatements(long expected, Supplier<T> call) {
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        T result = QuarkusTransaction.requiringNew().call(call::get);
+        assertEquals(expected, statistics.getPrepareStatementCount());
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package com.market.service;
+
+import com.market.dto.OrderResponseDTO;
+import com.market.enums.OrderStatus;
+import com.market.exception.api.StorageOverloadedException;
+import com.market.exception.api.StorageUnavailableException;
+import com.market.exception.order.OrderNotFoundException;
+import com.market.exception.order.OrderStockException;
+import com.market.model.OrderPlacementTask;
+import com.market.repository.OrderPlacementTaskRepository;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ProcessingException;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+public class OrderPlacementWorkerTest {
+    @Inject
+    OrderPlacementWorker worker;
+
+    @InjectMock
+    OrderService orderService;
+
+    @InjectMock
+    OrderPlacementTaskRepository taskRepository;
+
+    private OrderPlacementTask task(Long orderId, int attempts) {
+        OrderPlacementTask task = new OrderPlacementTask(orderId, "[]");
+        task.setAttempts(attempts);
+        task.setNextAttemptAt(LocalDateTime.now());
+        when(taskRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(task));
+        when(taskRepository.findByOrderId(orderId)).thenReturn(task);
+        return task;
+    }
+
+    @Test
+    public void shouldCompleteClaimedOrder() {
+        OrderPlacementTask task = task(1L, 0);
+
+        assertEquals(1, worker.drain());
+
+        verify(orderService).completePlacement(1L);
+        verify(orderService, never()).failPlacement(anyLong(), anyString());
+        assertEquals(1, task.getAttempts());
+    }
+
+    @Test
+    public void shouldFailOrderWhenStockIsMissing() {
+        task(2L, 0);
+        doThrow(new OrderStockException(5L, 3)).when(orderService).completePlacement(2L);
+
+        worker.drain();
+
+        verify(orderService).failPlacement(eq(2L), contains("5"));
+    }
+
+    @Test
+    public void shouldPostponeWhenRequestWasNotSent() {
+        OrderPlacementTask task = task(3L, 0);
+        StorageOverloadedException overloaded = new StorageOverloadedException(8);
+        doThrow(overloaded).when(orderService).completePlacement(3L);
+
+        worker.drain();
+
+        verify(orderService, never()).failPlacement(anyLong(), anyString());
+        assertTrue(task.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertEquals(overloaded.getMessage(), task.getLastError());
+    }
+
+    @Test
+    public void shouldFailAfterMaxAttempts() {
+        task(4L, 4);
+        doThrow(new CircuitBreakerOpenException("storage")).when(orderService).completePlacement(4L);
+
+        worker.drain();
+
+        verify(orderService).failPlacement(4L, "storage");
+    }
+
+    //После таймаута склад мог списать товар: повтор не делаем, резерв отменяется по ключу
+    @Test
+    public void shouldNotRetryWhenStorageMayHaveReserved() {
+        OrderPlacementTask task = task(6L, 0);
+        doThrow(new TimeoutException("timeout")).when(orderService).completePlacement(6L);
+
+        worker.drain();
+
+        verify(orderService).failPlacement(6L, "timeout");
+        assertNull(task.getLastError());
+    }
+
+    @Test
+    public void shouldRetryOnlyFailuresBeforeStorage() {
+        assertTrue(OrderPlacementWorker.isRetryable(new CircuitBreakerOpenException("storage")));
+        assertTrue(OrderPlacementWorker.isRetryable(new BulkheadException("full")));
+        assertTrue(OrderPlacementWorker.isRetryable(new StorageOverloadedException(8)));
+        assertTrue(OrderPlacementWorker.isRetryable(
+                new ProcessingException(new ConnectException("Connection refused"))));
+        assertFalse(OrderPlacementWorker.isRetryable(new TimeoutException("timeout")));
+        assertFalse(OrderPlacementWorker.isRetryable(new StorageUnavailableException("Склад недоступен: 503")));
+        assertFalse(OrderPlacementWorker.isRetryable(new ProcessingException("Read timed out")));
+    }
+
+    @Test
+    public void shouldReturnAsSoonAsOrderLeavesPending() {
+        OrderResponseDTO created = new OrderResponseDTO();
+        created.orderId = 5L;
+        created.status = OrderStatus.CREATED;
+        when(orderService.findById(5L)).thenReturn(created);
+
+        long start = System.nanoTime();
+        OrderResponseDTO order = worker.awaitPlacement(5L, Duration.ofSeconds(10));
+
+        assertEquals(OrderStatus.CREATED, order.status);
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+    }
+
+    //Long-poll на несуществующий заказ не должен оставлять ожидание в памяти
+    @Test
+    public void shouldNotKeepWaiterForUnknownOrder() {
+        when(orderService.findById(99L)).thenThrow(new OrderNotFoundException(99L));
+
+        assertThrows(OrderNotFoundException.class, () -> worker.awaitPlacement(99L, Duration.ofSeconds(1)));
+        assertEquals(0, worker.waiting());
+    }
+}
@@ -1,5 +1,6 @@
 package com.market.service;
 
+import com.market.client.ProductInfoClient;
 import com.market.client.StorageClient;
 import com.market.dto.*;
 import com.market.exception.order.*;
@@ -7,12 +8,19 @@ import com.market.enums.OrderStatus;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
 import com.market.model.Order;
+import com.market.model.OrderPlacementTask;
 import com.market.model.OrderProduct;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.ArgumentCaptor;
+import com.market.repository.OrderPlacementTaskRepository;
 import com.market.repository.OrderProductRepository;
 import com.market.repository.OrderRepository;
 
@@ -34,12 +42,17 @@ public class OrderServiceTest {
     OrderRepository orderRepository;
 
     @InjectMock
-    @RestClient
     StorageClient storageClient;
 
     @InjectMock
     OrderProductRepository orderProductRepository;
 
+    @InjectMock
+    ProductInfoClient productInfoClient;
+
+    @InjectMock
+    OrderPlacementTaskRepository placementTaskRepository;
+
     Order orderTest;
 
     @BeforeEach
@@ -65,16 +78,44 @@ public class OrderServiceTest {
     //Тест с получениям заказов
     @Test
     public void shouldFindAllOrders() {
-        when(orderRepository.listAll())
+        when(orderRepository.findPage(null, null, 101))
                 .thenReturn(List.of(orderTest));
 
-        List<OrderResponseDTO> orders = orderService.findAll();
+        List<OrderResponseDTO> orders = orderService.findAll(null, 100).items();
 
         assertNotNull(orders);
         assertEquals(orders.getFirst().orderId, orderTest.getId());
         assertEquals(orders.getFirst().createDate, orderTest.getCreateDate());
     }
 
+    @Test
+    public void shouldReturnCursorWhenNextPageExists() {
+        Order next = new Order();
+        next.setId(2L);
+        next.setCreateDate(LocalDateTime.of(1,1,1,1,2));
+        when(orderRepository.findPage(LocalDateTime.of(1,1,1,1,0), 5L, 2))
+                .thenReturn(List.of(orderTest, next));
+
+        OrderService.OrderPage page = orderService.findAll("0001-01-01T01:00_5", 1);
+
+        assertEquals(1, page.items().size());
+        assertEquals(orderTest.getId(), page.items().getFirst().orderId);
+        assertEquals("0001-01-01T01:01_1", page.nextCursor());
+    }
+
+    @Test
+    public void shouldCapPageSize() {
+        when(orderRepository.findPage(null, null, 501)).thenReturn(List.of(orderTest));
+
+        assertNull(orderService.findAll(null, 100_000).nextCursor());
+        verify(orderRepository).findPage(null, null, 501);
+    }
+
+    @Test
+    public void shouldRejectMalformedCursor() {
+        assertThrows(BadRequestException.class, () -> orderService.findAll("yesterday", 10));
+    }
+
     //Тесты с получением заказа по id
     @Test
     public void shouldFindOrderById() {
@@ -100,10 +141,10 @@ public class OrderServiceTest {
     //Тест с получениям заказа по номеру телефона
     @Test
     public void shouldFindOrderByCustomerPhone() {
-        when(orderRepository.findByCustomerPhone("79001234567"))
+        when(orderRepository.findPageByCustomerPhone("79001234567", null, null, 101))
                 .thenReturn(List.of(orderTest));
 
-        List<OrderResponseDTO> orders = orderService.findByCustomerPhone("79001234567");
+        List<OrderResponseDTO> orders = orderService.findByCustomerPhone("79001234567", null, 100).items();
 
         assertNotNull(orders);
         assertEquals(orders.getFirst().orderId, orderTest.getId());
@@ -115,10 +156,10 @@ public class OrderServiceTest {
     //Тест с получениям заказов по адресу доставки
     @Test
     public void shouldFindByDeliveryAddress() {
-        when(orderRepository.findByDeliveryAddress("Test delivery address"))
+        when(orderRepository.findPageByDeliveryAddress("Test delivery address", null, null, 101))
                 .thenReturn(List.of(orderTest));
 
-        List<OrderResponseDTO> orders = orderService.findByDeliveryAddress("Test delivery address");
+        List<OrderResponseDTO> orders = orderService.findByDeliveryAddress("Test delivery address", null, 100).items();
 
         assertNotNull(orders);
         assertEquals(orders.getFirst().orderId, orderTest.getId());
@@ -163,16 +204,14 @@ public class OrderServiceTest {
 
         //when(orderRepository.persist(any(Order.class))).thenReturn(orderTest);
 
-        ProductDTO product = new ProductDTO(
+        ProductInfoDTO product = new ProductInfoDTO(
                 1L,
                 "Test product",
                 new ProductDTO.CategoryDTO(1L, "Test category"),
-                1,
-                "Test Description",
                 BigDecimal.ONE
         );
 
-        when(storageClient.getProduct(1L))
+        when(productInfoClient.getProduct(1L))
                 .thenReturn(product);
 
         when(storageClient.hasStock(1L,1))
@@ -192,6 +231,8 @@ public class OrderServiceTest {
         assertEquals(createdOrder.orderProducts.getFirst().productId(), orderRequest.orderProducts.getFirst().productId);
         assertEquals(createdOrder.totalPrice, BigDecimal.ONE);
         assertEquals(createdOrder.orderProducts.getFirst().amount(), 1);
+        verify(storageClient, times(1)).reserveBatch(anyString(), anyList());
+        verify(storageClient, never()).orderProcess(anyLong(), anyInt());
     }
 
     @Test
@@ -201,7 +242,7 @@ public class OrderServiceTest {
                 "Address",
                 List.of(new OrderCreateDTO.OrderProductDTO(1L, 2))
         );
-        when(storageClient.getProduct(1L)).thenThrow(new NotFoundException());
+        when(productInfoClient.getProduct(1L)).thenThrow(new NotFoundException());
 
         assertThrows(OrderProductException.class, () -> orderService.createOrder(request));
     }
@@ -214,16 +255,14 @@ public class OrderServiceTest {
                 List.of(new OrderCreateDTO.OrderProductDTO(1L, 2))
         );
 
-        ProductDTO product = new ProductDTO(
+        ProductInfoDTO product = new ProductInfoDTO(
                 1L,
                 "Test product",
                 new ProductDTO.CategoryDTO(1L, "Test category"),
-                1,
-                "Test Description",
                 BigDecimal.ONE
         );
 
-        when(storageClient.getProduct(1L))
+        when(productInfoClient.getProduct(1L))
                 .thenReturn(product);
 
         when(storageClient.hasStock(1L,2))
@@ -232,6 +271,227 @@ public class OrderServiceTest {
         assertThrows(OrderStockException.class, () -> orderService.createOrder(request));
     }
 
+    @Test
+    public void shouldCheckOrderLinesConcurrently() {
+        orderTest.getOrderProducts().clear();
+        for(long id = 1; id <= 3; id++) {
+            when(productInfoClient.getProduct(id)).thenReturn(new ProductInfoDTO(
+                    id,
+                    "Test product " + id,
+                    new ProductDTO.CategoryDTO(1L, "Test category"),
+                    BigDecimal.valueOf(id)
+            ));
+            when(storageClient.hasStock(id, 2)).thenReturn(true);
+        }
+
+        OrderResponseDTO createdOrder = orderService.createOrder(new OrderCreateDTO(
+                "79001234567",
+                "Test delivery address",
+                List.of(new OrderCreateDTO.OrderProductDTO(1L, 2),
+                        new OrderCreateDTO.OrderProductDTO(2L, 2),
+                        new OrderCreateDTO.OrderProductDTO(3L, 2))
+        ));
+
+        assertEquals(List.of(1L, 2L, 3L),
+                createdOrder.orderProducts.stream().map(OrderResponseDTO.OrderProductDTO::productId).toList());
+        assertEquals(0, BigDecimal.valueOf(12).compareTo(createdOrder.totalPrice));
+        verify(storageClient, times(1)).reserveBatch(anyString(), anyList());
+    }
+
+    @Test
+    public void shouldNotReserveWhenAnyLineFails() {
+        ProductInfoDTO product = new ProductInfoDTO(
+                1L,
+                "Test product",
+                new ProductDTO.CategoryDTO(1L, "Test category"),
+                BigDecimal.ONE
+        );
+        when(productInfoClient.getProduct(anyLong())).thenReturn(product);
+        when(storageClient.hasStock(1L, 1)).thenReturn(true);
+        when(storageClient.hasStock(2L, 5)).thenReturn(false);
+
+        assertThrows(OrderStockException.class, () -> orderService.createOrder(new OrderCreateDTO(
+                "79001234567",
+                "Test delivery address",
+                List.of(new OrderCreateDTO.OrderProductDTO(1L, 1),
+                        new OrderCreateDTO.OrderProductDTO(2L, 5))
+        )));
+        verify(storageClient, never()).reserveBatch(anyString(), anyList());
+    }
+
+    @Test
+    public void shouldReleaseReservationWhenOrderIsNotSaved() {
+        ProductInfoDTO product = new ProductInfoDTO(
+                1L,
+                "Test product",
+                new ProductDTO.CategoryDTO(1L, "Test category"),
+                BigDecimal.ONE
+        );
+        when(productInfoClient.getProduct(1L)).thenReturn(product);
+        when(storageClient.hasStock(1L, 1)).thenReturn(true);
+        doThrow(new IllegalStateException("db down")).when(orderRepository).persist(any(Order.class));
+
+        assertThrows(IllegalStateException.class, () -> orderService.createOrder(new OrderCreateDTO(
+                "79001234567",
+                "Test delivery address",
+                List.of(new OrderCreateDTO.OrderProductDTO(1L, 1))
+        )));
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(storageClient, times(1)).reserveBatch(key.capture(), anyList());
+        verify(storageClient, times(1)).releaseReservation(key.getValue());
+        verify(storageClient, never()).releaseBatch(anyList());
+    }
+
+    //Склад не ответил вовремя: резерв мог пройти, поэтому он отменяется по ключу
+    @Test
+    public void shouldReleaseReservationByKeyWhenReserveTimesOut() {
+        ProductInfoDTO product = new ProductInfoDTO(
+                1L,
+                "Test product",
+                new ProductDTO.CategoryDTO(1L, "Test category"),
+                BigDecimal.ONE
+        );
+        when(productInfoClient.getProduct(1L)).thenReturn(product);
+        when(storageClient.hasStock(1L, 1)).thenReturn(true);
+        doThrow(new TimeoutException("timeout")).when(storageClient).reserveBatch(anyString(), anyList());
+
+        assertThrows(TimeoutException.class, () -> orderService.createOrder(new OrderCreateDTO(
+                "79001234567",
+                "Test delivery address",
+                List.of(new OrderCreateDTO.OrderProductDTO(1L, 1))
+        )));
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(storageClient).reserveBatch(key.capture(), anyList());
+        verify(storageClient).releaseReservation(key.getValue());
+    }
+
+    //Тесты с асинхронным оформлением заказа
+    @Test
+    public void shouldAcceptOrderAsPendingWithoutStorageCalls() {
+        OrderResponseDTO accepted = orderService.acceptOrder(new OrderCreateDTO(
+                "79001234567",
+                "Test delivery address",
+                List.of(new OrderCreateDTO.OrderProductDTO(1L, 2))
+        ));
+
+        assertEquals(OrderStatus.PENDING, accepted.status);
+        assertTrue(accepted.orderProducts.isEmpty());
+        ArgumentCaptor<OrderPlacementTask> task = ArgumentCaptor.forClass(OrderPlacementTask.class);
+        verify(placementTaskRepository).persist(task.capture());
+        assertTrue(task.getValue().getLines().contains("\"productId\":1"));
+        verifyNoInteractions(storageClient, productInfoClient);
+    }
+
+    @Test
+    public void shouldCompletePendingOrder() {
+        orderTest.getOrderProducts().clear();
+        orderTest.setTotalPrice(BigDecimal.ZERO);
+        orderTest.setStatus(OrderStatus.PENDING);
+        OrderPlacementTask task = new OrderPlacementTask(1L, "[{\"productId\":1,\"amount\":2}]");
+        when(orderRepository.findById(1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(orderTest);
+        when(placementTaskRepository.findByOrderId(1L)).thenReturn(task);
+        when(productInfoClient.getProduct(1L)).thenReturn(new ProductInfoDTO(
+                1L,
+                "Test product",
+                new ProductDTO.CategoryDTO(1L, "Test category"),
+                BigDecimal.TEN
+        ));
+        when(storageClient.hasStock(1L, 2)).thenReturn(true);
+
+        orderService.completePlacement(1L);
+
+        assertEquals(OrderStatus.CREATED, orderTest.getStatus());
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(orderTest.getTotalPrice()));
+        assertEquals(1, orderTest.getOrderProducts().size());
+        verify(storageClient, times(1)).reserveBatch(anyString(), anyList());
+        verify(placementTaskRepository).delete(task);
+    }
+
+    @Test
+    public void shouldSkipPlacementWhenOrderIsNotPending() {
+        when(orderRepository.findById(1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(orderTest);
+        when(placementTaskRepository.findByOrderId(1L)).thenReturn(new OrderPlacementTask(1L, "[]"));
+
+        orderService.completePlacement(1L);
+
+        assertEquals(OrderStatus.CREATED, orderTest.getStatus());
+        verify(placementTaskRepository).deleteByOrderId(1L);
+        verifyNoInteractions(storageClient);
+    }
+
+    @Test
+    public void shouldFailPendingOrder() {
+        orderTest.setStatus(OrderStatus.PENDING);
+        when(orderRepository.findById(1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(orderTest);
+
+        orderService.failPlacement(1L, "Недостаточно товара с ID 1 (запрошено: 2)");
+
+        assertEquals(OrderStatus.FAILED, orderTest.getStatus());
+        assertEquals("Недостаточно товара с ID 1 (запрошено: 2)", orderTest.getFailureReason());
+        verify(placementTaskRepository).deleteByOrderId(1L);
+    }
+
+    //Строки PENDING-заказа еще резервирует OrderPlacementWorker, у FAILED резерва нет
+    @ParameterizedTest
+    @EnumSource(value = OrderStatus.class, names = {"PENDING", "FAILED"})
+    public void shouldRejectChangesOfOrderBeingPlacedOrFailed(OrderStatus status) {
+        orderTest.setStatus(status);
+        when(orderRepository.findByIdOptional(1L)).thenReturn(Optional.of(orderTest));
+
+        assertThrows(OrderStateException.class, () -> orderService.updateOrder(1L, new OrderUpdateDTO(
+                "12345678912",
+                "New delivery address",
+                OrderStatus.CREATED,
+                List.of(new OrderUpdateDTO.OrderProductDTO(1L, 2))
+        )));
+        assertThrows(OrderStateException.class, () -> orderService.updateOrderInformation(1L,
+                new OrderUpdateInfoDTO("12345678912", "New delivery address", OrderStatus.CREATED)));
+        assertThrows(OrderStateException.class, () -> orderService.addProduct(1L, new OrderUpdateDTO.OrderProductDTO(2L, 1)));
+        assertThrows(OrderStateException.class, () -> orderService.deleteProduct(1L, 1L));
+        assertThrows(OrderStateException.class, () -> orderService.updateProductOrderAmount(1L, 1L, 5));
+        assertEquals(status, orderTest.getStatus());
+        verifyNoInteractions(storageClient);
+    }
+
+    @Test
+    public void shouldNotDeletePendingOrder() {
+        orderTest.setStatus(OrderStatus.PENDING);
+        when(orderRepository.findByIdOptional(1L)).thenReturn(Optional.of(orderTest));
+
+        assertThrows(OrderStateException.class, () -> orderService.deleteOrder(1L));
+        verify(orderRepository, never()).deleteById(anyLong());
+        verifyNoInteractions(storageClient);
+    }
+
+    //Неоформленный заказ ничего не держит на складе, его можно удалить
+    @Test
+    public void shouldDeleteFailedOrder() {
+        orderTest.getOrderProducts().clear();
+        orderTest.setStatus(OrderStatus.FAILED);
+        when(orderRepository.findByIdOptional(1L)).thenReturn(Optional.of(orderTest));
+
+        orderService.deleteOrder(1L);
+
+        verify(orderRepository).deleteById(1L);
+        verifyNoInteractions(storageClient);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OrderStatus.class, names = {"PENDING", "FAILED"})
+    public void shouldRejectPlacementStatusFromClient(OrderStatus status) {
+        when(orderRepository.findByIdOptional(1L)).thenReturn(Optional.of(orderTest));
+
+        assertThrows(BadRequestException.class, () -> orderService.updateOrderInformation(1L,
+                new OrderUpdateInfoDTO("12345678912", "New delivery address", status)));
+        assertThrows(BadRequestException.class, () -> orderService.updateOrder(1L, new OrderUpdateDTO(
+                "12345678912",
+                "New delivery address",
+                status,
+                List.of(new OrderUpdateDTO.OrderProductDTO(1L, 1))
+        )));
+        verifyNoInteractions(storageClient);
+    }
+
     //Тесты с обновлением заказа
     @Test
     public void shouldUpdateOrder() {
@@ -241,16 +501,14 @@ public class OrderServiceTest {
         doNothing().when(storageClient)
                 .orderProcessCancel(1L,1);
 
-        ProductDTO product = new ProductDTO(
+        ProductInfoDTO product = new ProductInfoDTO(
                 1L,
                 "Test product",
                 new ProductDTO.CategoryDTO(1L, "Test category"),
-                1,
-                "Test Description",
                 BigDecimal.ONE
         );
 
-        when(storageClient.getProduct(1L))
+        when(productInfoClient.getProduct(1L))
                 .thenReturn(product);
 
         when(storageClient.hasStock(1L,1))
@@ -273,6 +531,80 @@ public class OrderServiceTest {
 
     }
 
+    @Test
+    public void shouldUpdateOrderWithoutStorageCallsWhenLinesUnchanged() {
+        when(orderRepository.findByIdOptional(1L))
+                .thenReturn(Optional.of(orderTest));
+
+        orderService.updateOrder(1L, new OrderUpdateDTO(
+                "12345678912",
+                "New delivery address",
+                OrderStatus.PROCESSING,
+                List.of(new OrderUpdateDTO.OrderProductDTO(1L, 1))
+        ));
+
+        verifyNoInteractions(productInfoClient);
+        verify(storageClient, never()).reserveBatch(anyString(), anyList());
+        verify(storageClient, never()).releaseBatch(anyList());
+        verify(storageClient, never()).orderProcessCancel(anyLong(), anyInt());
+    }
+
+    @Test
+    public void shouldReserveOnlyDeltaAndKeepPriceAtOrder() {
+        when(orderRepository.findByIdOptional(1L))
+                .thenReturn(Optional.of(orderTest));
+        //Цена на складе выросла, но строка заказа сохраняет цену на момент заказа
+        when(productInfoClient.getProduct(1L)).thenReturn(new ProductInfoDTO(
+                1L,
+                "Test product",
+                new ProductDTO.CategoryDTO(1L, "Test category"),
+                BigDecimal.TEN
+        ));
+        when(storageClient.hasStock(1L, 2)).thenReturn(true);
+
+        OrderResponseDTO updated = orderService.updateOrder(1L, new OrderUpdateDTO(
+                "12345678912",
+                "New delivery address",
+                OrderStatus.PROCESSING,
+                List.of(new OrderUpdateDTO.OrderProductDTO(1L, 3))
+        ));
+
+        verify(storageClient).reserveBatch(anyString(), argThat(lines -> lines.size() == 1
+                && lines.getFirst().productId.equals(1L) && lines.getFirst().amount == 2));
+        verify(storageClient, never()).releaseBatch(anyList());
+        assertEquals(3, updated.orderProducts.getFirst().amount());
+        assertEquals(BigDecimal.ONE, updated.orderProducts.getFirst().price());
+        assertEquals(0, BigDecimal.valueOf(3).compareTo(updated.totalPrice));
+    }
+
+    @Test
+    public void shouldReleaseRemovedLineAfterCommit() {
+        when(orderRepository.findByIdOptional(1L))
+                .thenReturn(Optional.of(orderTest));
+        when(productInfoClient.getProduct(2L)).thenReturn(new ProductInfoDTO(
+                2L,
+                "Other product",
+                new ProductDTO.CategoryDTO(1L, "Test category"),
+                BigDecimal.TEN
+        ));
+        when(storageClient.hasStock(2L, 1)).thenReturn(true);
+
+        OrderResponseDTO updated = orderService.updateOrder(1L, new OrderUpdateDTO(
+                "12345678912",
+                "New delivery address",
+                OrderStatus.PROCESSING,
+                List.of(new OrderUpdateDTO.OrderProductDTO(2L, 1))
+        ));
+
+        verify(storageClient).reserveBatch(anyString(), argThat(lines -> lines.size() == 1
+                && lines.getFirst().productId.equals(2L)));
+        verify(storageClient).releaseBatch(argThat(lines -> lines.size() == 1
+                && lines.getFirst().productId.equals(1L) && lines.getFirst().amount == 1));
+        assertEquals(List.of(2L),
+                updated.orderProducts.stream().map(OrderResponseDTO.OrderProductDTO::productId).toList());
+        assertEquals(0, BigDecimal.TEN.compareTo(updated.totalPrice));
+    }
+
     @Test
     public void shouldUpdateOrderThrowsExceptionWhenOrderNotFound() {
         when(orderRepository.findByIdOptional(2L))
@@ -289,7 +621,7 @@ public class OrderServiceTest {
         doNothing().when(storageClient)
                 .orderProcessCancel(1L,1);
 
-        when(storageClient.getProduct(2L))
+        when(productInfoClient.getProduct(2L))
                 .thenThrow(new NotFoundException());
 
         OrderUpdateDTO updateOrder = new OrderUpdateDTO(
@@ -310,16 +642,14 @@ public class OrderServiceTest {
         doNothing().when(storageClient)
                 .orderProcessCancel(1L,1);
 
-        ProductDTO product = new ProductDTO(
+        ProductInfoDTO product = new ProductInfoDTO(
                 1L,
                 "Test product",
                 new ProductDTO.CategoryDTO(1L, "Test category"),
-                1,
-                "Test Description",
                 BigDecimal.ONE
         );
 
-        when(storageClient.getProduct(1L))
+        when(productInfoClient.getProduct(1L))
                 .thenReturn(product);
 
         when(storageClient.hasStock(1L,10))
@@ -388,16 +718,14 @@ public class OrderServiceTest {
         when(orderRepository.findByIdOptional(1L))
                 .thenReturn(Optional.of(orderTest));
 
-        ProductDTO product = new ProductDTO(
+        ProductInfoDTO product = new ProductInfoDTO(
                 2L,
                 "Test product2",
                 new ProductDTO.CategoryDTO(1L, "Test category"),
-                2,
-                "Test Description2",
                 BigDecimal.ONE
         );
 
-        when(storageClient.getProduct(2L))
+        when(productInfoClient.getProduct(2L))
                 .thenReturn(product);
 
         when(storageClient.hasStock(2L,2))
@@ -433,7 +761,7 @@ public class OrderServiceTest {
         when(orderRepository.findByIdOptional(1L))
                 .thenReturn(Optional.of(orderTest));
 
-        when(storageClient.getProduct(1L)).thenThrow(NotFoundException.class);
+        when(productInfoClient.getProduct(1L)).thenThrow(NotFoundException.class);
 
         OrderUpdateDTO.OrderProductDTO orderProductDTO = new OrderUpdateDTO.OrderProductDTO(
                 1L,
@@ -447,16 +775,14 @@ public class OrderServiceTest {
         when(orderRepository.findByIdOptional(1L))
                 .thenReturn(Optional.of(orderTest));
 
-        ProductDTO product = new ProductDTO(
+        ProductInfoDTO product = new ProductInfoDTO(
                 1L,
                 "Test product2",
                 new ProductDTO.CategoryDTO(1L, "Test category"),
-                2,
-                "Test Description2",
                 BigDecimal.ONE
         );
 
-        when(storageClient.getProduct(1L))
+        when(productInfoClient.getProduct(1L))
                 .thenReturn(product);
 
         OrderUpdateDTO.OrderProductDTO orderProductDTO = new OrderUpdateDTO.OrderProductDTO(
@@ -472,16 +798,14 @@ public class OrderServiceTest {
         when(orderRepository.findByIdOptional(1L))
                 .thenReturn(Optional.of(orderTest));
 
-        ProductDTO product = new ProductDTO(
+        ProductInfoDTO product = new ProductInfoDTO(
                 2L,
                 "Test product2",
                 new ProductDTO.CategoryDTO(1L, "Test category"),
-                2,
-                "Test Description2",
                 BigDecimal.ONE
         );
 
-        when(storageClient.getProduct(2L))
+        when(productInfoClient.getProduct(2L))
                 .thenReturn(product);
 
         when(storageClient.hasStock(2L,3))
@@ -0,0 +1,43 @@
+package com.market.storage.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+
+//Строка импорта: категория задаётся либо id, либо названием
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductImportDTO {
+
+    //Ограничения повторяют колонки product: строка, которая не влезет в таблицу, отсекается до записи пакета
+    @NotBlank
+    @Size(max = 150)
+    public String name;
+
+    public Long categoryId;
+
+    public String category;
+
+    @PositiveOrZero
+    public int amount;
+
+    public String description;
+
+    @NotNull
+    @Digits(integer = 8, fraction = 2)
+    public BigDecimal price;
+
+    public ProductImportDTO() {}
+    public ProductImportDTO(String name, Long categoryId, String category, int amount, String description, BigDecimal price) {
+        this.name = name;
+        this.categoryId = categoryId;
+        this.category = category;
+        this.amount = amount;
+        this.description = description;
+        this.price = price;
+    }
+}
@@ -0,0 +1,16 @@
+package com.market.storage.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductImportReportDTO {
+    public int imported;
+
+    public int failed;
+
+    public List<RowError> errors = new ArrayList<>();
+
+    public ProductImportReportDTO() {}
+
+    public record RowError(long line, String message){}
+}
@@ -0,0 +1,30 @@
+package com.market.storage.dto;
+
+import java.math.BigDecimal;
+
+public class ProductQuoteDTO {
+    public Long productId;
+
+    public String name;
+
+    public BigDecimal price;
+
+    public int available;
+
+    public int requested;
+
+    public boolean found;
+
+    public boolean sufficient;
+
+    public ProductQuoteDTO() {}
+
+    //Для JPQL-проекции: description в запрос не попадает
+    public ProductQuoteDTO(Long productId, String name, BigDecimal price, int available) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.available = available;
+        this.found = true;
+    }
+}
@@ -1,5 +1,6 @@
 package com.market.storage.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -31,6 +32,10 @@ public class ProductResponseDTO {
     @JsonProperty
     public BigDecimal price;
 
+    //Передается в заголовке ETag, а не в теле
+    @JsonIgnore
+    public long version;
+
     public ProductResponseDTO() {}
     public ProductResponseDTO(Long id, String name, CategoryDTO category, int amount, String description, BigDecimal price) {
         this.id = id;
@@ -41,6 +46,13 @@ public class ProductResponseDTO {
         this.price = price;
     }
 
+    //Для JPQL-проекций: вложенный конструктор в select new не поддерживается
+    public ProductResponseDTO(Long id, String name, Long categoryId, String categoryName, int amount, String description, BigDecimal price) {
+        this(id, name, new CategoryDTO(categoryId, categoryName), amount, description, price);
+    }
+
     public record CategoryDTO(Long id, String name){}
 
+    public record StockDTO(int amount, long version){}
+
 }
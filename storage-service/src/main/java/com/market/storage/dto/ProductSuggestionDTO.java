@@ -0,0 +1,12 @@
+package com.market.storage.dto;
+
+public class ProductSuggestionDTO {
+    public Long id;
+    public String name;
+
+    public ProductSuggestionDTO() {}
+    public ProductSuggestionDTO(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+}
@@ -1,8 +1,15 @@
 package com.market.storage.exception.product;
 
 public class InsufficientStockException extends ProductException {
+    private final Long productId;
+
     public InsufficientStockException(Long productId, int available, int requested) {
         super(String.format("Недостаточно товара с id %d (в наличии: %d, запрошено %d)",
                 productId, available, requested));
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
     }
 }
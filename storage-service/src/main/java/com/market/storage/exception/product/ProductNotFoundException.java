@@ -1,7 +1,14 @@
 package com.market.storage.exception.product;
 
 public class ProductNotFoundException extends ProductException {
+    private final Long productId;
+
     public ProductNotFoundException(Long id) {
         super("Товар с id " + id + " не найден");
+        this.productId = id;
+    }
+
+    public Long getProductId() {
+        return productId;
     }
 }
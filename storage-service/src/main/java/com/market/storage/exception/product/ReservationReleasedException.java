@@ -0,0 +1,7 @@
+package com.market.storage.exception.product;
+
+public class ReservationReleasedException extends ProductException {
+    public ReservationReleasedException(String key) {
+        super("Резерв с ключом " + key + " уже отменен");
+    }
+}
@@ -0,0 +1,7 @@
+package com.market.storage.exception.product;
+
+public class ReservationTimeoutException extends ProductException {
+    public ReservationTimeoutException(Long id) {
+        super("Резерв товара с ID " + id + " не был обработан вовремя и отменен");
+    }
+}
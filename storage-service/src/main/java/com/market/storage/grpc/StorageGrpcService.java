@@ -0,0 +1,171 @@
+package com.market.storage.grpc;
+
+import com.google.protobuf.Empty;
+import com.market.grpc.storage.HasStockReply;
+import com.market.grpc.storage.Product;
+import com.market.grpc.storage.ProductIdRequest;
+import com.market.grpc.storage.ReservationKey;
+import com.market.grpc.storage.StockBatch;
+import com.market.grpc.storage.StockLine;
+import com.market.grpc.storage.StorageGrpc;
+import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.dto.StockReservationDTO;
+import com.market.storage.exception.product.InsufficientStockException;
+import com.market.storage.exception.product.InvalidAmountException;
+import com.market.storage.exception.product.ProductNotFoundException;
+import com.market.storage.exception.product.ReservationReleasedException;
+import com.market.storage.service.ProductService;
+import com.market.storage.service.StockReservationService;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import io.quarkus.grpc.GrpcService;
+import io.smallrye.common.annotation.Blocking;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+//gRPC-вариант ProductResource для order-service; методы сервиса блокирующие, поэтому @Blocking
+@GrpcService
+public class StorageGrpcService extends StorageGrpc.StorageImplBase {
+    private static final Logger logger = LoggerFactory.getLogger(StorageGrpcService.class);
+
+    static final Metadata.Key<String> PRODUCT_ID =
+            Metadata.Key.of("product-id", Metadata.ASCII_STRING_MARSHALLER);
+
+    @Inject
+    ProductService productService;
+
+    @Inject
+    StockReservationService stockReservationService;
+
+    @Override
+    @Blocking
+    public void getProduct(ProductIdRequest request, StreamObserver<Product> responseObserver) {
+        respond(responseObserver, () -> toProto(productService.getProductById(request.getId())));
+    }
+
+    @Override
+    @Blocking
+    public void hasStock(StockLine request, StreamObserver<HasStockReply> responseObserver) {
+        respond(responseObserver, () -> HasStockReply.newBuilder()
+                .setHasStock(productService.checkStock(request.getProductId(), request.getAmount()))
+                .build());
+    }
+
+    @Override
+    @Blocking
+    public void orderProcess(StockLine request, StreamObserver<Empty> responseObserver) {
+        respond(responseObserver, () -> {
+            productService.orderProduct(request.getProductId(), request.getAmount());
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    @Blocking
+    public void orderProcessCancel(StockLine request, StreamObserver<Empty> responseObserver) {
+        respond(responseObserver, () -> {
+            productService.orderProductCancel(request.getProductId(), request.getAmount());
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    @Blocking
+    public void reserveBatch(StockBatch request, StreamObserver<Empty> responseObserver) {
+        respond(responseObserver, () -> {
+            if(request.getReservationKey().isEmpty()) {
+                productService.reserveBatch(toReservations(request));
+            }
+            else {
+                stockReservationService.reserve(request.getReservationKey(), toReservations(request));
+            }
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    @Blocking
+    public void releaseBatch(StockBatch request, StreamObserver<Empty> responseObserver) {
+        respond(responseObserver, () -> {
+            productService.releaseBatch(toReservations(request));
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    @Blocking
+    public void releaseReservation(ReservationKey request, StreamObserver<Empty> responseObserver) {
+        respond(responseObserver, () -> {
+            stockReservationService.release(request.getKey());
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    private <T> void respond(StreamObserver<T> responseObserver, Supplier<T> call) {
+        T reply;
+        try {
+            reply = call.get();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus(e));
+            return;
+        }
+        responseObserver.onNext(reply);
+        responseObserver.onCompleted();
+    }
+
+    private StatusRuntimeException toStatus(RuntimeException e) {
+        Metadata trailers = new Metadata();
+        Status status;
+        if(e instanceof ProductNotFoundException notFound) {
+            status = Status.NOT_FOUND;
+            putProductId(trailers, notFound.getProductId());
+        } else if(e instanceof InsufficientStockException insufficient) {
+            status = Status.FAILED_PRECONDITION;
+            putProductId(trailers, insufficient.getProductId());
+        } else if(e instanceof InvalidAmountException) {
+            status = Status.INVALID_ARGUMENT;
+        } else if(e instanceof ReservationReleasedException) {
+            status = Status.ABORTED;
+        } else {
+            logger.error("Ошибка обработки gRPC-запроса", e);
+            status = Status.INTERNAL;
+        }
+        return status.withDescription(e.getMessage()).asRuntimeException(trailers);
+    }
+
+    private static void putProductId(Metadata trailers, Long productId) {
+        if(productId != null) {
+            trailers.put(PRODUCT_ID, productId.toString());
+        }
+    }
+
+    private static List<StockReservationDTO> toReservations(StockBatch batch) {
+        if(batch.getLinesCount() == 0) {
+            throw new InvalidAmountException(0);
+        }
+        return batch.getLinesList().stream()
+                .map(line -> new StockReservationDTO(line.getProductId(), line.getAmount()))
+                .toList();
+    }
+
+    private static Product toProto(ProductResponseDTO product) {
+        Product.Builder builder = Product.newBuilder()
+                .setId(product.id)
+                .setName(product.name)
+                .setCategoryId(product.category.id())
+                .setCategoryName(product.category.name())
+                .setAmount(product.amount)
+                .setPrice(product.price.toPlainString())
+                .setVersion(product.version);
+        if(product.description != null) {
+            builder.setDescription(product.description);
+        }
+        return builder.build();
+    }
+}
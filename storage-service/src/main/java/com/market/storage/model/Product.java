@@ -11,7 +11,8 @@ import java.math.BigDecimal;
 @Table(name = "products")
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -32,6 +33,11 @@ public class Product {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal price;
 
+    //Обычная колонка, не @Version: списания двигают ее постоянно, и оптимистическая проверка роняла бы PUT
+    //товара в продаже. Растет только отдельными UPDATE (ProductRepository.bumpVersion и складские запросы)
+    @Column(nullable = false, updatable = false)
+    private long version;
+
     public Product() {}
 
     public Product(String name, Category category, int amount, String description, BigDecimal price) {
@@ -49,6 +55,8 @@ public class Product {
     public Category getCategory() {return category;}
     public void setCategory(Category category) {this.category = category;}
     public int getAmount() {return amount;}
+    public long getVersion() {return version;}
+    public void setVersion(long version) {this.version = version;}
     public void setAmount(int amount) {this.amount = amount;}
     public String getDescription() {return description;}
     public void setDescription(String description) {this.description = description;}
@@ -0,0 +1,43 @@
+package com.market.storage.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+//Пакетный резерв по ключу клиента. RELEASED без строк - отмена пришла раньше резерва,
+//такой ключ больше нельзя зарезервировать
+@Entity
+@Table(name = "stock_reservations")
+public class StockReservation {
+    public enum Status {RESERVED, RELEASED}
+
+    @Id
+    @Column(name = "reservation_key", length = 64)
+    private String key;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    //Строки резерва в виде "productId:amount;productId:amount"
+    @Column(name = "stock_lines")
+    private String lines;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public StockReservation() {}
+
+    public StockReservation(String key, Status status, String lines) {
+        this.key = key;
+        this.status = status;
+        this.lines = lines;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getKey() {return key;}
+    public Status getStatus() {return status;}
+    public void setStatus(Status status) {this.status = status;}
+    public String getLines() {return lines;}
+    public LocalDateTime getCreatedAt() {return createdAt;}
+}
@@ -1,27 +1,200 @@
 package com.market.storage.repository;
 
+import com.market.storage.dto.ProductQuoteDTO;
+import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.dto.ProductSuggestionDTO;
 import com.market.storage.model.Product;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @ApplicationScoped
 public class ProductRepository implements PanacheRepository<Product> {
+
+    //Списки отдаются проекцией в DTO одним запросом с join категории, без загрузки сущностей
+    private static final String PRODUCT_VIEW = """
+            select new com.market.storage.dto.ProductResponseDTO(
+                p.id, p.name, c.id, c.name, p.amount, p.description, p.price)
+            from Product p join p.category c
+            """;
+
+    //Поиск по названию использует GIN-индекс pg_trgm на lower(name), в H2 его нет
+    private static final String TRIGRAM_SEARCH = """
+            select p.id, p.name, c.id as category_id, c.name as category_name, p.amount, p.description, p.price
+            from products p join categories c on c.id = p.category
+            where lower(p.name) like :pattern escape '\\'
+            order by similarity(lower(p.name), :name) desc, p.id
+            limit :limit offset :offset
+            """;
+
+    @ConfigProperty(name = "quarkus.datasource.db-kind")
+    String dbKind;
+
     public List<Product> findByCategory(Long categoryId) {
         return find("category.id = ?1", categoryId).list();
     }
 
+    //Keyset-пагинация: страница начинается сразу после последнего отданного id
+    public List<ProductResponseDTO> findPage(long afterId, int limit) {
+        return view("where p.id > :after order by p.id")
+                .setParameter("after", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<ProductResponseDTO> findPageByCategory(Long categoryId, long afterId, int limit) {
+        return view("where c.id = :categoryId and p.id > :after order by p.id")
+                .setParameter("categoryId", categoryId)
+                .setParameter("after", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //Курсор на стороне БД: строки приходят порциями по fetchSize, а не всем списком
+    public ScrollableResults<Product> scrollAll(int fetchSize) {
+        return getEntityManager().unwrap(Session.class)
+                .createSelectionQuery("from Product p join fetch p.category order by p.id", Product.class)
+                .setReadOnly(true)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
     public List<Product> findAllStock(){
         return find("amount > 0").list();
     }
 
-    public List<Product> findBySimilarName(String similarName){
-        return find("LOWER(name) LIKE LOWER(?1)", "%" + similarName + "%").list();
+    @SuppressWarnings("unchecked")
+    public List<ProductResponseDTO> findBySimilarName(String similarName, int limit, int offset){
+        String name = similarName.toLowerCase();
+        String pattern = "%" + escapeLike(name) + "%";
+        if("postgresql".equals(dbKind)) {
+            List<Tuple> rows = getEntityManager().createNativeQuery(TRIGRAM_SEARCH, Tuple.class)
+                    .setParameter("pattern", pattern)
+                    .setParameter("name", name)
+                    .setParameter("limit", limit)
+                    .setParameter("offset", offset)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultList();
+            return rows.stream().map(ProductRepository::toView).toList();
+        }
+        //Без similarity() ближе к запросу считаются более короткие названия
+        return view("where lower(p.name) like :pattern escape '\\' order by length(p.name), p.id")
+                .setParameter("pattern", pattern)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<ProductSuggestionDTO> findAllNames() {
+        return getEntityManager()
+                .createQuery("select new com.market.storage.dto.ProductSuggestionDTO(p.id, p.name) from Product p",
+                        ProductSuggestionDTO.class)
+                .getResultList();
+    }
+
+    public List<ProductQuoteDTO> findQuotes(Collection<Long> ids) {
+        return getEntityManager()
+                .createQuery("select new com.market.storage.dto.ProductQuoteDTO(p.id, p.name, p.price, p.amount) "
+                        + "from Product p where p.id in :ids", ProductQuoteDTO.class)
+                .setParameter("ids", ids)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    public List<Long> findIdsByCategory(Long categoryId, int limit) {
+        return getEntityManager()
+                .createQuery("select p.id from Product p where p.category.id = :categoryId order by p.id", Long.class)
+                .setParameter("categoryId", categoryId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //Массовый DELETE без загрузки сущностей в контекст персистентности
+    public long deleteByIds(Collection<Long> ids) {
+        return delete("id in ?1", ids);
     }
 
     public boolean hasStock(Long id, int amount){
-        return find("id= ?1 and amount >= ?2", id, amount)
-                .firstResultOptional().isPresent();
+        return !stockQuery(StockSql.HAS_STOCK, id, amount).setMaxResults(1).getResultList().isEmpty();
+    }
+
+    public int decrementStock(Long id, int amount) {
+        return stockQuery(StockSql.DECREMENT_STOCK, id, amount).executeUpdate();
+    }
+
+    public int incrementStock(Long id, int amount) {
+        return stockQuery(StockSql.INCREMENT_STOCK, id, amount).executeUpdate();
+    }
+
+    public int applyStockDelta(Long id, int delta) {
+        return stockQuery(StockSql.INCREMENT_STOCK, id, delta).executeUpdate();
+    }
+
+    public Optional<Integer> findAmount(Long id) {
+        return getEntityManager()
+                .createNativeQuery(StockSql.jdbc(StockSql.FIND_AMOUNT))
+                .setParameter(1, id)
+                .getResultStream()
+                .findFirst()
+                .map(amount -> ((Number) amount).intValue());
+    }
+
+    public int bumpVersion(Long id) {
+        return update("version = version + 1 where id = ?1", id);
+    }
+
+    public int bumpVersionByCategory(Long categoryId) {
+        return update("version = version + 1 where category.id = ?1", categoryId);
+    }
+
+    public Optional<ProductResponseDTO.StockDTO> findStock(Long id) {
+        return getEntityManager()
+                .createQuery("select p.amount, p.version from Product p where p.id = :id", Tuple.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .map(row -> new ProductResponseDTO.StockDTO(row.get(0, Integer.class), row.get(1, Long.class)));
+    }
+
+    private Query stockQuery(String sql, Long id, int amount) {
+        return getEntityManager()
+                .createNativeQuery(StockSql.jdbc(sql))
+                .setParameter(1, id)
+                .setParameter(2, amount);
+    }
+
+    private TypedQuery<ProductResponseDTO> view(String condition) {
+        return getEntityManager()
+                .createQuery(PRODUCT_VIEW + condition, ProductResponseDTO.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+    }
+
+    private static ProductResponseDTO toView(Tuple row) {
+        return new ProductResponseDTO(
+                ((Number) row.get(0)).longValue(),
+                (String) row.get(1),
+                ((Number) row.get(2)).longValue(),
+                (String) row.get(3),
+                ((Number) row.get(4)).intValue(),
+                (String) row.get(5),
+                (BigDecimal) row.get(6));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
     }
 }
@@ -0,0 +1,21 @@
+package com.market.storage.repository;
+
+import com.market.storage.model.StockReservation;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.LockModeType;
+
+import java.time.LocalDateTime;
+
+@ApplicationScoped
+public class StockReservationRepository implements PanacheRepositoryBase<StockReservation, String> {
+
+    //Резерв и отмена одного ключа выполняются по очереди
+    public StockReservation findForUpdate(String key) {
+        return findById(key, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    public long deleteOlderThan(LocalDateTime threshold) {
+        return delete("createdAt < ?1", threshold);
+    }
+}
@@ -0,0 +1,23 @@
+package com.market.storage.repository;
+
+//Складские запросы в одном месте: их выполняет ProductRepository через JDBC и ReactiveStockService через реактивный пул.
+//Параметры в нотации PostgreSQL ($1 - id товара, $2 - количество), для JDBC они переводятся в ?1, ?2
+public final class StockSql {
+
+    public static final String HAS_STOCK = "select 1 from products where id = $1 and amount >= $2";
+
+    public static final String FIND_AMOUNT = "select amount from products where id = $1";
+
+    //Условное списание одним UPDATE: 0 строк - товара нет или его недостаточно
+    public static final String DECREMENT_STOCK =
+            "update products set amount = amount - $2, version = version + 1 where id = $1 and amount >= $2";
+
+    public static final String INCREMENT_STOCK =
+            "update products set amount = amount + $2, version = version + 1 where id = $1";
+
+    private StockSql() {}
+
+    static String jdbc(String sql) {
+        return sql.replace('$', '?');
+    }
+}
@@ -0,0 +1,80 @@
+package com.market.storage.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.market.storage.dto.ProductResponseDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+//Построчная запись товаров в поток ответа: NDJSON или CSV
+abstract class ProductExportWriter implements Consumer<ProductResponseDTO> {
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+
+    protected final OutputStream output;
+
+    private ProductExportWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    static ProductExportWriter ndjson(OutputStream output, ObjectMapper objectMapper) {
+        return new ProductExportWriter(output) {
+            @Override
+            protected void write(ProductResponseDTO product) throws IOException {
+                output.write(objectMapper.writeValueAsBytes(product));
+                output.write('\n');
+            }
+        };
+    }
+
+    static ProductExportWriter csv(OutputStream output) {
+        ProductExportWriter writer = new ProductExportWriter(output) {
+            @Override
+            protected void write(ProductResponseDTO product) throws IOException {
+                writeLine(String.join(",",
+                        String.valueOf(product.id),
+                        escape(product.name),
+                        String.valueOf(product.category.id()),
+                        escape(product.category.name()),
+                        String.valueOf(product.amount),
+                        escape(product.description),
+                        product.price.toPlainString()));
+            }
+        };
+        writer.writeLine("id,name,categoryId,category,amount,description,price");
+        return writer;
+    }
+
+    protected abstract void write(ProductResponseDTO product) throws IOException;
+
+    @Override
+    public void accept(ProductResponseDTO product) {
+        try {
+            write(product);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void writeLine(String line) {
+        try {
+            output.write(line.getBytes(StandardCharsets.UTF_8));
+            output.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String escape(String value) {
+        if(value == null) {
+            return "";
+        }
+        if(value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
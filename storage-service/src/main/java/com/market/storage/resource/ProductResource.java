@@ -1,21 +1,42 @@
 package com.market.storage.resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.market.storage.service.ProductImportService;
 import com.market.storage.service.ProductService;
+import com.market.storage.service.ReactiveStockService;
+import com.market.storage.service.StockReservationService;
+import com.market.storage.dto.ProductImportReportDTO;
+import com.market.storage.dto.ProductQuoteDTO;
 import com.market.storage.dto.ProductRequestDTO;
 import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.dto.ProductSuggestionDTO;
+import com.market.storage.dto.StockReservationDTO;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Function;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+//Блокирующие методы помечены @RunOnVirtualThread, методы с Uni остаются на event loop
 @Path("/api/products")
 @Tag(name = "Products", description = "Управление товарами")
 @Produces(MediaType.APPLICATION_JSON)
@@ -23,37 +44,104 @@ import org.slf4j.LoggerFactory;
 public class ProductResource {
     private static final Logger logger = LoggerFactory.getLogger(ProductResource.class);
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Inject
     ProductService productService;
 
+    @Inject
+    ReactiveStockService reactiveStock;
+
+    @Inject
+    ProductImportService productImportService;
+
+    @Inject
+    StockReservationService stockReservationService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @RunOnVirtualThread
+    @GET
+    @Operation(summary = "Получить страницу товаров, курсор следующей страницы в заголовке X-Next-Cursor")
+    public Response getAllProducts(@QueryParam("after") Long after,
+                                   @QueryParam("limit") @DefaultValue("100") int limit) {
+        logger.info("Получение запроса на список товаров после ID {}", after);
+        return pageResponse(productService.getAllProducts(after, limit));
+    }
+
+    @RunOnVirtualThread
     @GET
-    @Operation(summary = "Получить список всех товаров")
-    public List<ProductResponseDTO> getAllProducts() {
-        logger.info("Получение запроса на список всех товаров");
-        return productService.getAllProducts();
+    @Path("/export")
+    @Produces(ProductExportWriter.NDJSON)
+    @Operation(summary = "Потоковая выгрузка всего каталога в NDJSON")
+    public Response exportNdjson() {
+        logger.info("Запрос на выгрузку каталога в NDJSON");
+        return export(output -> ProductExportWriter.ndjson(output, objectMapper));
+    }
+
+    @RunOnVirtualThread
+    @GET
+    @Path("/export")
+    @Produces(ProductExportWriter.CSV)
+    @Operation(summary = "Потоковая выгрузка всего каталога в CSV")
+    public Response exportCsv() {
+        logger.info("Запрос на выгрузку каталога в CSV");
+        return export(ProductExportWriter::csv);
     }
 
     @GET
     @Path("/{id}")
-    public ProductResponseDTO getProduct(@PathParam("id") long id) {
+    @Operation(summary = "Получить товар по ID, поддерживает If-None-Match")
+    public Uni<Response> getProduct(@PathParam("id") long id, @Context Request request) {
         logger.info("Запрос товара по ID: {}", id);
-        return productService.getProductById(id);
+        return reactiveStock.getProductById(id).map(product -> {
+            EntityTag etag = productTag(product);
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+            if(notModified != null) {
+                logger.debug("Товар ID {} не изменился, ответ 304", id);
+                return notModified.tag(etag).build();
+            }
+            return Response.ok(product).tag(etag).build();
+        });
     }
 
+    //Сильный ETag по версии строки: она растет при каждом изменении карточки и остатка.
+    //Остаток горячего товара живет в памяти и версию не меняет, поэтому тоже входит в тег
+    static EntityTag productTag(ProductResponseDTO product) {
+        return new EntityTag(product.version + "-" + product.amount);
+    }
+
+    @RunOnVirtualThread
     @GET
     @Path("/{id}/category")
-    public List<ProductResponseDTO> getProductCategory(@PathParam("id") long id) {
+    public Response getProductCategory(@PathParam("id") long id,
+                                       @QueryParam("after") Long after,
+                                       @QueryParam("limit") @DefaultValue("100") int limit) {
         logger.info("Запрос товаров категории с ID: {}", id);
-        return productService.getProductsByCategory(id);
+        return pageResponse(productService.getProductsByCategory(id, after, limit));
     }
 
+    @RunOnVirtualThread
     @GET
     @Path("/search")
-    public List<ProductResponseDTO> getProductName(@QueryParam("name") String name) {
+    public List<ProductResponseDTO> getProductName(@QueryParam("name") String name,
+                                                   @QueryParam("limit") @DefaultValue("20") int limit,
+                                                   @QueryParam("offset") @DefaultValue("0") int offset) {
         logger.info("Запрос на поиск товаров по названию: '{}'", name);
-        return productService.getProductsBySimilarName(name);
+        return productService.getProductsBySimilarName(name, limit, offset);
+    }
+
+    @RunOnVirtualThread
+    @GET
+    @Path("/autocomplete")
+    @Operation(summary = "Автодополнение по началу названия без обращения к БД")
+    public List<ProductSuggestionDTO> autocomplete(@QueryParam("prefix") String prefix,
+                                                   @QueryParam("limit") @DefaultValue("10") int limit) {
+        return productService.autocomplete(prefix, limit);
     }
 
+    @RunOnVirtualThread
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
@@ -69,6 +157,27 @@ public class ProductResource {
                 .build();
     }
 
+    @RunOnVirtualThread
+    @POST
+    @Path("/import")
+    @Consumes(ProductExportWriter.NDJSON)
+    @Operation(summary = "Массовый импорт товаров из NDJSON с отчётом по строкам")
+    public ProductImportReportDTO importNdjson(InputStream body) {
+        logger.info("Запрос на импорт товаров из NDJSON");
+        return productImportService.importJsonLines(body);
+    }
+
+    @RunOnVirtualThread
+    @POST
+    @Path("/import")
+    @Consumes(ProductExportWriter.CSV)
+    @Operation(summary = "Массовый импорт товаров из CSV с отчётом по строкам")
+    public ProductImportReportDTO importCsv(InputStream body) {
+        logger.info("Запрос на импорт товаров из CSV");
+        return productImportService.importCsv(body);
+    }
+
+    @RunOnVirtualThread
     @PUT
     @Path("/{id}")
     public ProductResponseDTO updateProduct(@PathParam("id") long id, ProductRequestDTO productRequestDTO) {
@@ -76,6 +185,7 @@ public class ProductResource {
         return productService.updateProduct(id, productRequestDTO);
     }
 
+    @RunOnVirtualThread
     @DELETE
     @Path("/{id}")
     public Response deleteProduct(@PathParam("id") long id) {
@@ -86,25 +196,87 @@ public class ProductResource {
 
     @POST
     @Path("/{id}/order")
-    public Response orderProduct(@PathParam("id") Long id, @QueryParam("amount") int amount) {
+    public Uni<Response> orderProduct(@PathParam("id") Long id, @QueryParam("amount") int amount) {
         logger.info("Запрос на заказ товара ID: {}, количество: {}", id, amount);
-        productService.orderProduct(id, amount);
-        return Response.status(Response.Status.OK).build();
+        return reactiveStock.orderProduct(id, amount)
+                .map(ignored -> Response.status(Response.Status.OK).build());
     }
 
     @POST
     @Path("/{id}/order-cancel")
-    public Response orderProductsCancel(@PathParam("id") Long id,@QueryParam("amount") int amount) {
+    public Uni<Response> orderProductsCancel(@PathParam("id") Long id,@QueryParam("amount") int amount) {
         logger.info("Запрос на отмену заказа товара ID: {}, возврат количества: {}", id, amount);
-        productService.orderProductCancel(id,amount);
+        return reactiveStock.orderProductCancel(id, amount)
+                .map(ignored -> Response.status(Response.Status.OK).build());
+    }
+
+    @RunOnVirtualThread
+    @POST
+    @Path("/reserve-batch")
+    @Operation(summary = "Зарезервировать несколько товаров одной транзакцией, с ключом резерв можно отменить по ключу")
+    public Response reserveBatch(@QueryParam("key") @Size(max = 64) String key,
+                                 @Valid @NotEmpty List<StockReservationDTO> reservations) {
+        logger.info("Запрос на пакетное резервирование товаров, позиций: {}", reservations.size());
+        if(key == null) {
+            productService.reserveBatch(reservations);
+        }
+        else {
+            stockReservationService.reserve(key, reservations);
+        }
+        return Response.status(Response.Status.OK).build();
+    }
+
+    @RunOnVirtualThread
+    @POST
+    @Path("/reservations/{key}/release")
+    @Operation(summary = "Отменить резерв по ключу, в том числе еще не дошедший до склада")
+    public Response releaseReservation(@PathParam("key") @Size(max = 64) String key) {
+        logger.info("Запрос на отмену резерва по ключу {}", key);
+        stockReservationService.release(key);
         return Response.status(Response.Status.OK).build();
     }
 
+    @RunOnVirtualThread
+    @POST
+    @Path("/release-batch")
+    @Operation(summary = "Вернуть на склад несколько товаров одной транзакцией")
+    public Response releaseBatch(@Valid @NotEmpty List<StockReservationDTO> reservations) {
+        logger.info("Запрос на пакетную отмену резерва товаров, позиций: {}", reservations.size());
+        productService.releaseBatch(reservations);
+        return Response.status(Response.Status.OK).build();
+    }
+
+    @RunOnVirtualThread
+    @POST
+    @Path("/quote")
+    @Operation(summary = "Цена, название и наличие нескольких товаров одним запросом")
+    public List<ProductQuoteDTO> quote(@Valid @NotEmpty @Size(max = 1000) List<StockReservationDTO> lines) {
+        logger.info("Запрос на расчет цены и наличия, позиций: {}", lines.size());
+        return productService.quote(lines);
+    }
+
     @GET
     @Path("/{id}/stock")
-    public Response getStock(@PathParam("id") Long id, @QueryParam("amount") int amount) {
+    public Uni<Response> getStock(@PathParam("id") Long id, @QueryParam("amount") int amount) {
         logger.debug("Запрос на проверку наличия товара ID: {}, количество: {}", id, amount);
-        boolean hasStock=productService.checkStock(id, amount);
-        return Response.ok(hasStock).build();
+        return reactiveStock.checkStock(id, amount)
+                .map(hasStock -> Response.ok(hasStock).build());
+    }
+
+    private Response export(Function<OutputStream, ProductExportWriter> writerFactory) {
+        StreamingOutput body = output -> {
+            BufferedOutputStream buffered = new BufferedOutputStream(output, 64 * 1024);
+            productService.exportProducts(writerFactory.apply(buffered));
+            buffered.flush();
+        };
+        return Response.ok(body).build();
+    }
+
+    private Response pageResponse(ProductService.ProductPage page) {
+        Response.ResponseBuilder response = Response.ok(page.items());
+        if(page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.build();
     }
 }
@@ -0,0 +1,84 @@
+package com.market.storage.resource;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+//Общий предел тела запроса в Vert.x поднят под импорт, здесь он сужается для остальных эндпоинтов.
+//Тело без Content-Length считается по мере чтения
+public class RequestBodyLimitFilter {
+    private static final Logger logger = LoggerFactory.getLogger(RequestBodyLimitFilter.class);
+
+    static final String IMPORT_PATH = "/api/products/import";
+
+    @ConfigProperty(name = "storage.http.max-body-size", defaultValue = "10M")
+    MemorySize maxBodySize;
+
+    @ConfigProperty(name = "storage.import.max-body-size", defaultValue = "256M")
+    MemorySize maxImportBodySize;
+
+    @ServerRequestFilter(preMatching = true)
+    public Response limitBody(ContainerRequestContext requestContext) {
+        String path = requestContext.getUriInfo().getPath();
+        long limit = path.startsWith(IMPORT_PATH) ? maxImportBodySize.asLongValue() : maxBodySize.asLongValue();
+        String contentLength = requestContext.getHeaderString(HttpHeaders.CONTENT_LENGTH);
+        if(contentLength != null && Long.parseLong(contentLength.trim()) > limit) {
+            logger.warn("Тело запроса {} больше предела: {} > {}", path, contentLength, limit);
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).build();
+        }
+        requestContext.setEntityStream(new LimitedInputStream(requestContext.getEntityStream(), limit));
+        return null;
+    }
+
+    static class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long read;
+
+        LimitedInputStream(InputStream input, long limit) {
+            super(input);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if(n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long n) {
+            read += n;
+            if(read > limit) {
+                throw new WebApplicationException(Response.Status.REQUEST_ENTITY_TOO_LARGE);
+            }
+        }
+    }
+}
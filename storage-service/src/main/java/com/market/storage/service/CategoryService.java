@@ -3,6 +3,7 @@ package com.market.storage.service;
 import com.market.storage.dto.CategoryRequestDTO;
 import com.market.storage.dto.CategoryResponseDTO;
 import com.market.storage.exception.category.CategoryNotFoundException;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -21,6 +22,9 @@ public class CategoryService {
     @Inject
     CategoryRepository categoryRepository;
 
+    @Inject
+    ProductService productService;
+
     public List<CategoryResponseDTO> getAllCategories() {
         logger.info("Получение всех категорий");
         List<CategoryResponseDTO> categoryResponseDTO = categoryRepository.listAll().stream()
@@ -68,15 +72,22 @@ public class CategoryService {
                     logger.info("Категория не найдена id: {}", id);
                     return new CategoryNotFoundException(id);});
         categoryOld.setName(categoryNew.name);
+        productService.categoryChanged(id);
         logger.info("Категория обновленна с id: {}", categoryOld.getId());
         return toDto(categoryOld);
     }
 
-    @Transactional
+    //deleteById загрузил бы всю коллекцию products ради каскада, поэтому товары удаляются заранее порциями
     public void deleteCategory(Long id) {
         logger.info("Удаление категории с id: {}", id);
-        boolean deleted = categoryRepository.deleteById(id);
-        if(!deleted) {
+        if(categoryRepository.findByIdOptional(id).isEmpty()) {
+            logger.info("Категории c {} для удаления не найдена ", id);
+            throw new CategoryNotFoundException(id);
+        }
+        int products = productService.deleteProductsByCategory(id);
+        logger.info("Удалено товаров категории {}: {}", id, products);
+        long deleted = QuarkusTransaction.requiringNew().call(() -> categoryRepository.delete("id", id));
+        if(deleted == 0) {
             logger.info("Категории c {} для удаления не найдена ", id);
             throw new CategoryNotFoundException(id);
         }
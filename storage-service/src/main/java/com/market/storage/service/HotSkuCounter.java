@@ -0,0 +1,100 @@
+package com.market.storage.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//Остаток горячего товара, разбитый на полосы: потоки списывают из разных ячеек и не спорят за одну
+public class HotSkuCounter {
+    //Шаг между полосами, чтобы соседние ячейки не попадали в одну кэш-линию
+    private static final int PADDING = 8;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+    //Изменение остатка, еще не записанное в таблицу products
+    private final LongAdder pendingDelta = new LongAdder();
+
+    public HotSkuCounter(int stripes, long available) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        spread(available);
+    }
+
+    public boolean tryReserve(int amount) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int index = cellIndex((start + i) % stripes);
+            long current = cells.get(index);
+            while (current >= amount) {
+                if (cells.compareAndSet(index, current, current - amount)) {
+                    pendingDelta.add(-amount);
+                    return true;
+                }
+                current = cells.get(index);
+            }
+        }
+        return reserveAcrossStripes(amount);
+    }
+
+    //Под той же блокировкой, что reset: возврат между drain и сбросом pendingDelta остался бы
+    //в ячейках, но пропал бы из pendingDelta, и остаток в памяти навсегда разошелся бы с таблицей
+    public synchronized void release(int amount) {
+        cells.getAndAdd(cellIndex(ThreadLocalRandom.current().nextInt(stripes)), amount);
+        pendingDelta.add(amount);
+    }
+
+    public long available() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(cellIndex(i));
+        }
+        return total;
+    }
+
+    public long drainPendingDelta() {
+        return pendingDelta.sumThenReset();
+    }
+
+    public void restorePendingDelta(long delta) {
+        pendingDelta.add(delta);
+    }
+
+    //Остаток задан явно (например, при обновлении товара): несохраненная разница больше не нужна
+    public synchronized void reset(long available) {
+        drain();
+        pendingDelta.reset();
+        spread(available);
+    }
+
+    //Ни в одной полосе не хватило товара: собираем остаток в одном месте под блокировкой
+    private synchronized boolean reserveAcrossStripes(int amount) {
+        long total = drain();
+        if (total < amount) {
+            spread(total);
+            return false;
+        }
+        spread(total - amount);
+        pendingDelta.add(-amount);
+        return true;
+    }
+
+    private long drain() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(cellIndex(i), 0);
+        }
+        return total;
+    }
+
+    private void spread(long amount) {
+        long share = amount / stripes;
+        cells.getAndAdd(cellIndex(0), share + amount % stripes);
+        for (int i = 1; i < stripes; i++) {
+            cells.getAndAdd(cellIndex(i), share);
+        }
+    }
+
+    private int cellIndex(int stripe) {
+        return stripe * PADDING;
+    }
+}
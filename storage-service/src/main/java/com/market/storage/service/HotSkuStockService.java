@@ -0,0 +1,131 @@
+package com.market.storage.service;
+
+import com.market.storage.exception.product.ProductNotFoundException;
+import com.market.storage.repository.ProductRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@ApplicationScoped
+public class HotSkuStockService {
+    private static final Logger logger = LoggerFactory.getLogger(HotSkuStockService.class);
+
+    @Inject
+    ProductRepository productRepository;
+
+    @ConfigProperty(name = "storage.hot-sku.ids")
+    Optional<List<Long>> hotSkuIds;
+
+    @ConfigProperty(name = "storage.hot-sku.stripes", defaultValue = "8")
+    int stripes;
+
+    private final Map<Long, HotSkuCounter> counters = new ConcurrentHashMap<>();
+    private Set<Long> hotSkus;
+
+    @PostConstruct
+    void init() {
+        hotSkus = Set.copyOf(hotSkuIds.orElse(List.of()));
+        if(!hotSkus.isEmpty()) {
+            logger.info("Режим горячих товаров включен для ID: {}", hotSkus);
+        }
+    }
+
+    public boolean isHot(Long id) {
+        return hotSkus.contains(id);
+    }
+
+    public boolean tryReserve(Long id, int amount) {
+        return counter(id).tryReserve(amount);
+    }
+
+    public void release(Long id, int amount) {
+        counter(id).release(amount);
+    }
+
+    public int available(Long id) {
+        return (int) counter(id).available();
+    }
+
+    //Для горячего товара актуальный остаток в памяти, а не в таблице
+    public int currentAmount(Long id, int persistedAmount) {
+        HotSkuCounter counter = counters.get(id);
+        return counter == null ? persistedAmount : (int) counter.available();
+    }
+
+    public synchronized void reset(Long id, int amount) {
+        HotSkuCounter counter = counters.get(id);
+        if(counter != null) {
+            counter.reset(amount);
+            logger.info("Остаток горячего товара ID {} установлен: {}", id, amount);
+        }
+    }
+
+    public void remove(Long id) {
+        counters.remove(id);
+    }
+
+    @Scheduled(every = "${storage.hot-sku.flush-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledFlush() {
+        flush();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flush();
+    }
+
+    //Переносим накопленные изменения в products одной транзакцией
+    public synchronized void flush() {
+        Map<Long, Long> deltas = new TreeMap<>();
+        counters.forEach((id, counter) -> {
+            long delta = counter.drainPendingDelta();
+            if(delta != 0) {
+                deltas.put(id, delta);
+            }
+        });
+        if(deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            QuarkusTransaction.requiringNew().run(() ->
+                    deltas.forEach((id, delta) -> productRepository.applyStockDelta(id, delta.intValue())));
+            logger.debug("Остатки горячих товаров записаны в БД: {}", deltas);
+        } catch (RuntimeException e) {
+            logger.error("Не удалось записать остатки горячих товаров, повтор при следующем сбросе", e);
+            deltas.forEach((id, delta) -> {
+                HotSkuCounter counter = counters.get(id);
+                if(counter != null) {
+                    counter.restorePendingDelta(delta);
+                }
+            });
+        }
+    }
+
+    private HotSkuCounter counter(Long id) {
+        return counters.computeIfAbsent(id, this::load);
+    }
+
+    private HotSkuCounter load(Long id) {
+        int amount = productRepository.findAmount(id)
+                .orElseThrow(() -> {
+                    logger.error("Горячий товар с ID {} не найден", id);
+                    return new ProductNotFoundException(id);});
+        logger.info("Загружен остаток горячего товара ID {}: {}", id, amount);
+        return new HotSkuCounter(stripes, amount);
+    }
+}
@@ -0,0 +1,147 @@
+package com.market.storage.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.market.storage.dto.ProductResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+//Карточки товаров и остатки кэшируются раздельно: списание не выбрасывает название, цену и описание
+@ApplicationScoped
+public class ProductCache {
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "storage.product-cache.maximum-size", defaultValue = "10000")
+    long maximumSize;
+
+    @ConfigProperty(name = "storage.product-cache.expire-after-write", defaultValue = "10m")
+    Duration expireAfterWrite;
+
+    @ConfigProperty(name = "storage.product-cache.amount-expire-after-write", defaultValue = "1s")
+    Duration amountExpireAfterWrite;
+
+    //Поколения инвалидаций по слотам id: читатель, начавший загрузку до инвалидации, не кладет в кэш старые данные.
+    //Совпадение слота у разных товаров дает лишь лишний промах
+    private static final int GENERATION_SLOTS = 1024;
+
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_SLOTS);
+    private Cache<Long, ProductResponseDTO> products;
+    private Cache<Long, ProductResponseDTO.StockDTO> amounts;
+
+    @PostConstruct
+    void init() {
+        products = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        amounts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(amountExpireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "products");
+        CaffeineCacheMetrics.monitor(meterRegistry, amounts, "product-amounts");
+    }
+
+    public ProductResponseDTO getIfPresent(Long id) {
+        return products.getIfPresent(id);
+    }
+
+    //Снимается до чтения из БД и передается в put
+    public long generation(Long id) {
+        return generations.get(slot(id));
+    }
+
+    //Не кладет значение, если после generation была инвалидация или в кэше уже более новая версия
+    public void put(ProductResponseDTO product, long generation) {
+        Long id = product.id;
+        products.asMap().compute(id, (key, current) -> {
+            if(generations.get(slot(key)) != generation || (current != null && current.version > product.version)) {
+                return current;
+            }
+            return withStock(product, product.amount, product.version);
+        });
+        amounts.asMap().compute(id, (key, current) -> {
+            if(generations.get(slot(key)) != generation || (current != null && current.version() > product.version)) {
+                return current;
+            }
+            return new ProductResponseDTO.StockDTO(product.amount, product.version);
+        });
+    }
+
+    //null, если товара нет
+    public ProductResponseDTO.StockDTO stock(Long id, Function<Long, ProductResponseDTO.StockDTO> loader) {
+        return amounts.get(id, loader);
+    }
+
+    //Без загрузки: для event loop, где блокирующий loader недопустим
+    public ProductResponseDTO.StockDTO stockIfPresent(Long id) {
+        return amounts.getIfPresent(id);
+    }
+
+    public ProductResponseDTO withStock(ProductResponseDTO product, int amount, long version) {
+        ProductResponseDTO copy = copy(product, amount);
+        copy.version = version;
+        return copy;
+    }
+
+    public void invalidate(Long id) {
+        invalidateNowAndAfterCompletion(() -> {
+            generations.incrementAndGet(slot(id));
+            products.invalidate(id);
+            amounts.invalidate(id);
+        });
+    }
+
+    public void invalidateAmount(Long id) {
+        invalidateNowAndAfterCompletion(() -> {
+            generations.incrementAndGet(slot(id));
+            amounts.invalidate(id);
+        });
+    }
+
+    public void invalidateAll() {
+        invalidateNowAndAfterCompletion(() -> {
+            for(int i = 0; i < GENERATION_SLOTS; i++) {
+                generations.incrementAndGet(i);
+            }
+            products.invalidateAll();
+            amounts.invalidateAll();
+        });
+    }
+
+    //Повторная инвалидация после завершения транзакции убирает значения, прочитанные до коммита
+    private void invalidateNowAndAfterCompletion(Runnable invalidation) {
+        invalidation.run();
+        transactionHooks.afterCompletion(invalidation);
+    }
+
+    private static int slot(Long id) {
+        return Long.hashCode(id) & (GENERATION_SLOTS - 1);
+    }
+
+    private ProductResponseDTO copy(ProductResponseDTO product, int amount) {
+        return new ProductResponseDTO(
+                product.id,
+                product.name,
+                product.category,
+                amount,
+                product.description,
+                product.price
+        );
+    }
+}
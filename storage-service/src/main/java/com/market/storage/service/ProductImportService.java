@@ -0,0 +1,259 @@
+package com.market.storage.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.market.storage.dto.ProductImportDTO;
+import com.market.storage.dto.ProductImportReportDTO;
+import com.market.storage.model.Category;
+import com.market.storage.model.Product;
+import com.market.storage.repository.CategoryRepository;
+import com.market.storage.repository.ProductRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+//Потоковый импорт товаров: строки пишутся пакетами, каждый пакет - отдельная транзакция
+@ApplicationScoped
+public class ProductImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    @Inject
+    ProductRepository productRepository;
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    @Inject
+    ProductNameIndex productNameIndex;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Validator validator;
+
+    @ConfigProperty(name = "storage.import.batch-size", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "storage.import.max-reported-errors", defaultValue = "1000")
+    int maxReportedErrors;
+
+    public ProductImportReportDTO importJsonLines(InputStream input) {
+        logger.info("Импорт товаров из NDJSON");
+        return importRows(input, null);
+    }
+
+    //Первая строка CSV - заголовок с названиями колонок
+    public ProductImportReportDTO importCsv(InputStream input) {
+        logger.info("Импорт товаров из CSV");
+        return importRows(input, new HashMap<>());
+    }
+
+    private ProductImportReportDTO importRows(InputStream input, Map<String, Integer> csvColumns) {
+        ProductImportReportDTO report = new ProductImportReportDTO();
+        CategoryIds categories = loadCategories();
+        List<PendingRow> chunk = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if(line.isBlank()) {
+                    continue;
+                }
+                if(csvColumns != null && csvColumns.isEmpty()) {
+                    List<String> header = parseCsvLine(line);
+                    for (int i = 0; i < header.size(); i++) {
+                        csvColumns.put(header.get(i).trim(), i);
+                    }
+                    continue;
+                }
+                try {
+                    ProductImportDTO row = csvColumns == null
+                            ? objectMapper.readValue(line, ProductImportDTO.class)
+                            : fromCsv(parseCsvLine(line), csvColumns);
+                    validate(row);
+                    chunk.add(new PendingRow(lineNumber, row, resolveCategory(row, categories)));
+                } catch (Exception e) {
+                    reject(report, lineNumber, e.getMessage());
+                    continue;
+                }
+                if(chunk.size() >= batchSize) {
+                    writeChunk(chunk, report);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writeChunk(chunk, report);
+
+        logger.info("Импорт завершен: загружено {}, с ошибками {}", report.imported, report.failed);
+        return report;
+    }
+
+    private void writeChunk(List<PendingRow> chunk, ProductImportReportDTO report) {
+        if(chunk.isEmpty()) {
+            return;
+        }
+        try {
+            persist(chunk);
+            report.imported += chunk.size();
+            logger.debug("Записан пакет из {} товаров", chunk.size());
+        } catch (RuntimeException e) {
+            //Строку, которую не поймала валидация (например, ограничение БД), ищем повтором по одной
+            logger.warn("Ошибка записи пакета импорта, строк: {}, повтор по одной строке", chunk.size(), e);
+            for (PendingRow row : chunk) {
+                try {
+                    persist(List.of(row));
+                    report.imported++;
+                } catch (RuntimeException rowError) {
+                    logger.error("Ошибка записи строки импорта {}", row.line(), rowError);
+                    reject(report, row.line(), "Ошибка записи строки: " + rootMessage(rowError));
+                }
+            }
+        }
+        chunk.clear();
+    }
+
+    private void persist(List<PendingRow> rows) {
+        QuarkusTransaction.requiringNew().run(() -> {
+            EntityManager entityManager = productRepository.getEntityManager();
+            List<Product> products = new ArrayList<>(rows.size());
+            for (PendingRow row : rows) {
+                Product product = new Product(row.product().name,
+                        entityManager.getReference(Category.class, row.categoryId()),
+                        row.product().amount,
+                        row.product().description,
+                        row.product().price);
+                productRepository.persist(product);
+                products.add(product);
+            }
+            productRepository.flush();
+            transactionHooks.afterCommit(
+                    () -> products.forEach(product -> productNameIndex.put(product.getId(), product.getName())));
+        });
+    }
+
+    private void validate(ProductImportDTO row) {
+        Set<ConstraintViolation<ProductImportDTO>> violations = validator.validate(row);
+        if(!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+    }
+
+    private Long resolveCategory(ProductImportDTO row, CategoryIds categories) {
+        if(row.categoryId != null) {
+            if(!categories.ids().contains(row.categoryId)) {
+                throw new IllegalArgumentException("Категория с ID " + row.categoryId + " не найдена");
+            }
+            return row.categoryId;
+        }
+        Long categoryId = row.category == null ? null : categories.byName().get(row.category.trim());
+        if(categoryId == null) {
+            throw new IllegalArgumentException("Категория '" + row.category + "' не найдена");
+        }
+        return categoryId;
+    }
+
+    private CategoryIds loadCategories() {
+        Map<String, Long> byName = new HashMap<>();
+        categoryRepository.getEntityManager()
+                .createQuery("select c.name, c.id from Category c", Object[].class)
+                .getResultList()
+                .forEach(row -> byName.put((String) row[0], (Long) row[1]));
+        return new CategoryIds(byName, new HashSet<>(byName.values()));
+    }
+
+    private void reject(ProductImportReportDTO report, long line, String message) {
+        report.failed++;
+        if(report.errors.size() < maxReportedErrors) {
+            report.errors.add(new ProductImportReportDTO.RowError(line, message));
+        }
+    }
+
+    private static ProductImportDTO fromCsv(List<String> values, Map<String, Integer> columns) {
+        String categoryId = column(values, columns, "categoryId");
+        String amount = column(values, columns, "amount");
+        String price = column(values, columns, "price");
+        return new ProductImportDTO(
+                column(values, columns, "name"),
+                categoryId == null || categoryId.isBlank() ? null : Long.valueOf(categoryId.trim()),
+                column(values, columns, "category"),
+                amount == null || amount.isBlank() ? 0 : Integer.parseInt(amount.trim()),
+                column(values, columns, "description"),
+                price == null || price.isBlank() ? null : new BigDecimal(price.trim()));
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= values.size() ? null : values.get(index);
+    }
+
+    //Поля в кавычках могут содержать запятые и удвоенные кавычки, переносы строк внутри поля не поддерживаются
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if(quoted) {
+                if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if(c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if(c == '"') {
+                quoted = true;
+            } else if(c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private record PendingRow(long line, ProductImportDTO product, Long categoryId) {}
+
+    private record CategoryIds(Map<String, Long> byName, Set<Long> ids) {}
+}
@@ -0,0 +1,75 @@
+package com.market.storage.service;
+
+import com.market.storage.dto.ProductSuggestionDTO;
+import com.market.storage.repository.ProductRepository;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+//Отсортированный индекс названий для автодополнения: префиксный поиск - это диапазон ключей
+@ApplicationScoped
+public class ProductNameIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductNameIndex.class);
+
+    //Разделитель меньше любого символа названия, поэтому одинаковые названия идут подряд
+    private static final char SEPARATOR = '\u0000';
+
+    @Inject
+    ProductRepository productRepository;
+
+    private final ConcurrentSkipListMap<String, ProductSuggestionDTO> byName = new ConcurrentSkipListMap<>();
+    private final Map<Long, String> keysById = new ConcurrentHashMap<>();
+
+    void onStart(@Observes StartupEvent event) {
+        List<ProductSuggestionDTO> names = productRepository.findAllNames();
+        names.forEach(name -> put(name.id, name.name));
+        logger.info("Индекс автодополнения загружен, товаров: {}", names.size());
+    }
+
+    public List<ProductSuggestionDTO> complete(String prefix, int limit) {
+        String from = normalize(prefix);
+        NavigableMap<String, ProductSuggestionDTO> range = from.isEmpty()
+                ? byName
+                : byName.subMap(from, true, from + Character.MAX_VALUE, false);
+        return range.values().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    public synchronized void put(Long id, String name) {
+        if(id == null || name == null) {
+            return;
+        }
+        String key = normalize(name) + SEPARATOR + id;
+        String previous = keysById.put(id, key);
+        if(previous != null && !previous.equals(key)) {
+            byName.remove(previous);
+        }
+        byName.put(key, new ProductSuggestionDTO(id, name));
+    }
+
+    public synchronized void remove(Long id) {
+        String key = keysById.remove(id);
+        if(key != null) {
+            byName.remove(key);
+        }
+    }
+
+    public int size() {
+        return keysById.size();
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,22 +2,36 @@ package com.market.storage.service;
 
 import com.market.storage.exception.product.InsufficientStockException;
 import com.market.storage.exception.product.InvalidAmountException;
+import com.market.storage.exception.product.ProductException;
 import com.market.storage.exception.product.ProductNotFoundException;
 import com.market.storage.model.Product;
+import com.market.storage.dto.ProductQuoteDTO;
 import com.market.storage.dto.ProductRequestDTO;
 import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.dto.ProductSuggestionDTO;
+import com.market.storage.dto.StockReservationDTO;
 import com.market.storage.exception.category.CategoryNotFoundException;
 import jakarta.enterprise.context.ApplicationScoped;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.narayana.jta.TransactionConfiguration;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import jakarta.transaction.Transactional;
 import com.market.storage.model.Category;
 import com.market.storage.repository.CategoryRepository;
 import com.market.storage.repository.ProductRepository;
 
 import org.slf4j.Logger;
+import org.hibernate.ScrollableResults;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @ApplicationScoped
 public class ProductService {
@@ -30,48 +44,126 @@ public class ProductService {
     @Inject
     CategoryRepository categoryRepository;
 
-    public List<ProductResponseDTO> getAllProducts() {
-        logger.info("Получение списка всех товаров");
-        List<ProductResponseDTO> productResponseDTOS=  productRepository.listAll().stream()
-                .map(this::toDTO)
-                .toList();
-        logger.debug("Найдено {} товаров", productResponseDTOS.size());
-        return productResponseDTOS;
+    @Inject
+    HotSkuStockService hotSkuStock;
+
+    @Inject
+    ProductCache productCache;
+
+    @Inject
+    ProductNameIndex productNameIndex;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @Inject
+    ReservationEngine reservationEngine;
+
+    @ConfigProperty(name = "storage.category-delete.chunk-size", defaultValue = "1000")
+    int categoryDeleteChunkSize;
+
+    @ConfigProperty(name = "storage.export.fetch-size", defaultValue = "1000")
+    int exportFetchSize;
+
+    @ConfigProperty(name = "storage.page.max-limit", defaultValue = "500")
+    int pageMaxLimit;
+
+    @ConfigProperty(name = "storage.search.max-limit", defaultValue = "100")
+    int searchMaxLimit;
+
+    @ConfigProperty(name = "storage.autocomplete.max-limit", defaultValue = "50")
+    int autocompleteMaxLimit;
+
+    public record ProductPage(List<ProductResponseDTO> items, Long nextCursor) {}
+
+    public ProductPage getAllProducts(Long after, int limit) {
+        logger.info("Получение страницы товаров после ID {}, limit: {}", after, limit);
+        int pageSize = pageSize(limit);
+        ProductPage page = toPage(productRepository.findPage(cursor(after), pageSize + 1), pageSize);
+        logger.debug("Найдено {} товаров", page.items().size());
+        return page;
+    }
+
+    //Выгрузка всего каталога: после каждой порции контекст персистентности очищается
+    @Transactional
+    @TransactionConfiguration(timeoutFromConfigProperty = "storage.export.transaction-timeout")
+    public int exportProducts(Consumer<ProductResponseDTO> sink) {
+        logger.info("Выгрузка каталога товаров");
+        int exported = 0;
+        try (ScrollableResults<Product> products = productRepository.scrollAll(exportFetchSize)) {
+            while (products.next()) {
+                sink.accept(toDTO(products.get()));
+                if(++exported % exportFetchSize == 0) {
+                    productRepository.getEntityManager().clear();
+                }
+            }
+        }
+        logger.info("Выгрузка каталога завершена, товаров: {}", exported);
+        return exported;
     }
 
     public ProductResponseDTO getProductById(Long id) {
         logger.info("Поиск товара по ID: {}", id);
+        ProductResponseDTO cached = productCache.getIfPresent(id);
+        if(cached != null) {
+            ProductResponseDTO.StockDTO stock =
+                    productCache.stock(id, key -> productRepository.findStock(key).orElse(null));
+            if(stock != null) {
+                logger.debug("Товар ID {} найден в кэше", id);
+                return productCache.withStock(cached,
+                        hotSkuStock.currentAmount(id, stock.amount()), stock.version());
+            }
+            productCache.invalidate(id);
+            logger.error("Товар с ID {} не найден", id);
+            throw new ProductNotFoundException(id);
+        }
+
+        long generation = productCache.generation(id);
         Product product = productRepository.findByIdOptional(id)
                 .orElseThrow(() -> {
                     logger.error("Товар с ID {} не найден", id);
                     return new ProductNotFoundException(id);});
         logger.debug("Найден товар: {}", product);
-        return toDTO(product);
+        ProductResponseDTO productResponseDTO = toDTO(product);
+        productCache.put(productResponseDTO, generation);
+        return productResponseDTO;
     }
 
-    public List<ProductResponseDTO> getProductsByCategory(Long categoryId) {
-        logger.info("Поиск товаров по категории с ID: {}", categoryId);
+    public ProductPage getProductsByCategory(Long categoryId, Long after, int limit) {
+        logger.info("Поиск товаров по категории с ID: {}, после ID {}", categoryId, after);
         categoryRepository.findByIdOptional(categoryId)
                 .orElseThrow(()->{
                     logger.error("Категория с ID {} не найдена", categoryId);
                     return new CategoryNotFoundException(categoryId);});
 
-        List<ProductResponseDTO> productResponseDTOS= productRepository.findByCategory(categoryId).stream()
-                .map(this::toDTO)
-                .toList();
-        logger.debug("Найдено {} товаров в категории {}", productResponseDTOS.size(), categoryId);
-        return productResponseDTOS;
+        int pageSize = pageSize(limit);
+        ProductPage page = toPage(
+                productRepository.findPageByCategory(categoryId, cursor(after), pageSize + 1), pageSize);
+        logger.debug("Найдено {} товаров в категории {}", page.items().size(), categoryId);
+        return page;
     }
 
-    public List<ProductResponseDTO> getProductsBySimilarName(String name) {
-        logger.info("Поиск товаров по схожему названию: {}", name);
-        List<ProductResponseDTO> products = productRepository.findBySimilarName(name).stream()
-                .map(this::toDTO)
+    public List<ProductResponseDTO> getProductsBySimilarName(String name, int limit, int offset) {
+        logger.info("Поиск товаров по схожему названию: {}, limit: {}, offset: {}", name, limit, offset);
+        if(name == null || name.isBlank()) {
+            return List.of();
+        }
+        int pageSize = Math.max(1, Math.min(limit, searchMaxLimit));
+        List<ProductResponseDTO> products = productRepository
+                .findBySimilarName(name.trim(), pageSize, Math.max(0, offset)).stream()
+                .map(this::withLiveAmount)
                 .toList();
         logger.debug("Найдено {} товаров по запросу '{}'", products.size(), name);
         return products;
     }
 
+    public List<ProductSuggestionDTO> autocomplete(String prefix, int limit) {
+        if(prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return productNameIndex.complete(prefix, Math.max(1, Math.min(limit, autocompleteMaxLimit)));
+    }
+
     @Transactional
     public ProductResponseDTO createProduct(ProductRequestDTO productRequestDTO) {
         logger.info("Создание нового товара: {}", productRequestDTO.name);
@@ -89,6 +181,7 @@ public class ProductService {
         product.setAmount(productRequestDTO.amount);
 
         productRepository.persist(product);
+        transactionHooks.afterCommit(() -> productNameIndex.put(product.getId(), product.getName()));
         logger.info("Создан новый товар с ID: {}", product.getId());
         return toDTO(product);
     }
@@ -112,9 +205,29 @@ public class ProductService {
         product.setPrice(productRequestDTO.price);
         product.setAmount(productRequestDTO.amount);
         product.setCategory(category);
+        if(hotSkuStock.isHot(id)) {
+            int amount = productRequestDTO.amount;
+            transactionHooks.afterCommit(() -> hotSkuStock.reset(id, amount));
+        }
+        productCache.invalidate(id);
+        String name = product.getName();
+        transactionHooks.afterCommit(() -> productNameIndex.put(id, name));
 
+        //UPDATE версии сначала сбрасывает изменения карточки, затем читаем итоговую версию строки
+        productRepository.bumpVersion(id);
+        ProductResponseDTO updated = toDTO(product);
+        productRepository.findStock(id).ifPresent(stock -> updated.version = stock.version());
         logger.info("Товар с ID {} успешно обновлен", id);
-        return toDTO(product);
+        return updated;
+    }
+
+    //Название категории входит в карточку: меняем ETag товаров категории и сбрасываем кэш карточек.
+    //Товаров категории может быть много, поэтому кэш сбрасывается целиком, а не по одному id
+    @Transactional
+    public void categoryChanged(Long categoryId) {
+        int products = productRepository.bumpVersionByCategory(categoryId);
+        productCache.invalidateAll();
+        logger.info("Категория {} изменена, обновлены версии товаров: {}", categoryId, products);
     }
 
     @Transactional
@@ -125,58 +238,230 @@ public class ProductService {
             logger.error("Товар с ID {} не найден для удаления", id);
             throw new ProductNotFoundException(id);
         }
+        productCache.invalidate(id);
+        transactionHooks.afterCommit(() -> {
+            hotSkuStock.remove(id);
+            productNameIndex.remove(id);
+        });
         logger.info("Товар с ID {} успешно удален", id);
     }
 
-    @Transactional
+    //Товары категории удаляются порциями, каждая в своей транзакции, без долгих блокировок
+    public int deleteProductsByCategory(Long categoryId) {
+        logger.info("Удаление товаров категории с ID: {}", categoryId);
+        int deleted = 0;
+        while (true) {
+            List<Long> ids = QuarkusTransaction.requiringNew().call(() -> {
+                List<Long> chunk = productRepository.findIdsByCategory(categoryId, categoryDeleteChunkSize);
+                if(!chunk.isEmpty()) {
+                    productRepository.deleteByIds(chunk);
+                    chunk.forEach(productCache::invalidate);
+                    transactionHooks.afterCommit(() -> chunk.forEach(id -> {
+                        hotSkuStock.remove(id);
+                        productNameIndex.remove(id);
+                    }));
+                }
+                return chunk;
+            });
+            if(ids.isEmpty()) {
+                break;
+            }
+            deleted += ids.size();
+            logger.info("Категория {}: удалено товаров {}", categoryId, deleted);
+        }
+        return deleted;
+    }
+
+    //Групповое списание коммитит резерв в своей транзакции на потоке писателя,
+    //поэтому транзакция открывается только для остальных веток и не держит соединение на время ожидания пачки
     public void orderProduct(Long id, int amount) {
         logger.info("Оформление заказа товара с ID: {}, количество: {}", id, amount);
-        Product product=productRepository.findByIdOptional(id)
-                .orElseThrow(()-> {
-                    logger.error("Товар с ID {} не найден при оформлении заказа", id);
-                    return new ProductNotFoundException(id);});
-
         if(amount<1) {
             logger.error("Некорректное количество товара для заказа: {}", amount);
             throw new InvalidAmountException(amount);
         }
-        if(product.getAmount()<amount) {
-            logger.error("Недостаточно товара на складе. ID: {}, доступно: {}, запрошено: {}",
-                    id, product.getAmount(), amount);
-            throw new InsufficientStockException(id, product.getAmount(), amount);
-        }
 
-        product.setAmount(product.getAmount()-amount);
-        logger.info("Заказ товара с ID {} выполнен. Остаток на складе: {}", id, product.getAmount());
+        if(reservationEngine.isEnabled() && !hotSkuStock.isHot(id)) {
+            reservationEngine.reserveAndWait(id, amount);
+        }
+        else {
+            QuarkusTransaction.joiningExisting().run(() -> {
+                if(hotSkuStock.isHot(id)) {
+                    if(!hotSkuStock.tryReserve(id, amount)) {
+                        throw hotStockFailure(id, amount);
+                    }
+                    transactionHooks.afterRollback(() -> hotSkuStock.release(id, amount));
+                }
+                else if(productRepository.decrementStock(id, amount) == 0) {
+                    throw stockFailure(id, amount);
+                }
+                productCache.invalidateAmount(id);
+            });
+        }
+        logger.info("Заказ товара с ID {} выполнен, списано: {}", id, amount);
     }
 
     @Transactional
     public void orderProductCancel(Long id, int amount) {
         logger.info("Отмена заказа товара с ID: {}, возврат количества: {}", id, amount);
-        Product product=productRepository.findByIdOptional(id)
-                .orElseThrow(()-> {
-                    logger.error("Товар с ID {} не найден при отмене заказа", id);
-                    return new ProductNotFoundException(id);});
+        if(amount<1) {
+            logger.error("Некорректное количество товара для возврата: {}", amount);
+            throw new InvalidAmountException(amount);
+        }
+
+        if(hotSkuStock.isHot(id)) {
+            transactionHooks.afterCommit(() -> hotSkuStock.release(id, amount));
+        }
+        else if(productRepository.incrementStock(id, amount) == 0) {
+            logger.error("Товар с ID {} не найден при отмене заказа", id);
+            throw new ProductNotFoundException(id);
+        }
+        productCache.invalidateAmount(id);
+        logger.info("Отмена заказа товара с ID {} выполнена, возвращено: {}", id, amount);
+    }
 
-        product.setAmount(product.getAmount()+amount);
-        logger.info("Отмена заказа товара с ID {} выполнена. Новый остаток на складе: {}", id, product.getAmount());
+    @Transactional
+    public void reserveBatch(List<StockReservationDTO> reservations) {
+        logger.info("Пакетное резервирование товаров, позиций: {}", reservations.size());
+        Map<Long, Integer> amounts = mergeByProduct(reservations);
+
+        //UPDATE по возрастанию id: блокировки строк берутся в одном порядке, откат при первой ошибке.
+        //Горячие товары списываются в памяти: при любом откате, в том числе на коммите, их возвращаем
+        Map<Long, Integer> reservedHot = new TreeMap<>();
+        transactionHooks.afterRollback(() -> reservedHot.forEach(hotSkuStock::release));
+        amounts.forEach((id, amount) -> {
+            if(hotSkuStock.isHot(id)) {
+                if(!hotSkuStock.tryReserve(id, amount)) {
+                    throw hotStockFailure(id, amount);
+                }
+                reservedHot.put(id, amount);
+            }
+            else if(productRepository.decrementStock(id, amount) == 0) {
+                throw stockFailure(id, amount);
+            }
+            productCache.invalidateAmount(id);
+        });
+        logger.info("Пакетное резервирование выполнено, товаров: {}", amounts.size());
+    }
+
+    @Transactional
+    public void releaseBatch(List<StockReservationDTO> reservations) {
+        logger.info("Пакетная отмена резерва товаров, позиций: {}", reservations.size());
+        Map<Long, Integer> amounts = mergeByProduct(reservations);
+
+        amounts.forEach((id, amount) -> {
+            if(hotSkuStock.isHot(id)) {
+                transactionHooks.afterCommit(() -> hotSkuStock.release(id, amount));
+            }
+            else if(productRepository.incrementStock(id, amount) == 0) {
+                logger.error("Товар с ID {} не найден при пакетной отмене резерва", id);
+                throw new ProductNotFoundException(id);
+            }
+            productCache.invalidateAmount(id);
+        });
+        logger.info("Пакетная отмена резерва выполнена, товаров: {}", amounts.size());
+    }
+
+    //Цена и наличие нескольких товаров одним запросом, порядок строк ответа совпадает с запросом
+    public List<ProductQuoteDTO> quote(List<StockReservationDTO> lines) {
+        logger.info("Расчет цены и наличия для {} позиций", lines.size());
+        Map<Long, ProductQuoteDTO> found = new HashMap<>();
+        Set<Long> ids = new LinkedHashSet<>();
+        lines.forEach(line -> ids.add(line.productId));
+        productRepository.findQuotes(ids).forEach(quote -> found.put(quote.productId, quote));
+
+        return lines.stream()
+                .map(line -> {
+                    ProductQuoteDTO product = found.get(line.productId);
+                    ProductQuoteDTO quote = new ProductQuoteDTO();
+                    quote.productId = line.productId;
+                    quote.requested = line.amount;
+                    if(product != null) {
+                        quote.found = true;
+                        quote.name = product.name;
+                        quote.price = product.price;
+                        quote.available = hotSkuStock.currentAmount(product.productId, product.available);
+                        quote.sufficient = quote.available >= line.amount;
+                    }
+                    return quote;
+                })
+                .toList();
     }
 
     public boolean checkStock(Long id, int amount) {
         logger.debug("Проверка наличия товара с ID: {}, необходимое количество: {}", id, amount);
-        boolean hasStock= productRepository.hasStock(id, amount);
+        boolean hasStock= hotSkuStock.isHot(id)
+                ? hotSkuStock.available(id) >= amount
+                : productRepository.hasStock(id, amount);
         logger.debug("Результат проверки наличия товара с ID {}: {}", id, hasStock);
         return hasStock;
     }
 
+    private Map<Long, Integer> mergeByProduct(List<StockReservationDTO> reservations) {
+        Map<Long, Integer> amounts = new TreeMap<>();
+        for(StockReservationDTO reservation : reservations) {
+            if(reservation.amount < 1) {
+                logger.error("Некорректное количество товара ID {}: {}", reservation.productId, reservation.amount);
+                throw new InvalidAmountException(reservation.amount);
+            }
+            amounts.merge(reservation.productId, reservation.amount, Integer::sum);
+        }
+        return amounts;
+    }
+
+    //Вызывается только когда условный UPDATE не затронул строку: выясняем причину
+    private ProductException stockFailure(Long id, int amount) {
+        int available = productRepository.findAmount(id)
+                .orElseThrow(() -> {
+                    logger.error("Товар с ID {} не найден при оформлении заказа", id);
+                    return new ProductNotFoundException(id);});
+        logger.error("Недостаточно товара на складе. ID: {}, доступно: {}, запрошено: {}",
+                id, available, amount);
+        return new InsufficientStockException(id, available, amount);
+    }
+
+    private ProductException hotStockFailure(Long id, int amount) {
+        int available = hotSkuStock.available(id);
+        logger.error("Недостаточно горячего товара. ID: {}, доступно: {}, запрошено: {}",
+                id, available, amount);
+        return new InsufficientStockException(id, available, amount);
+    }
+
+    private int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, pageMaxLimit));
+    }
+
+    private static long cursor(Long after) {
+        return after == null ? 0L : after;
+    }
+
+    //Запрашивается на одну строку больше: так видно, есть ли следующая страница
+    private ProductPage toPage(List<ProductResponseDTO> products, int pageSize) {
+        boolean hasNext = products.size() > pageSize;
+        List<ProductResponseDTO> items = products.stream()
+                .limit(pageSize)
+                .map(this::withLiveAmount)
+                .toList();
+        Long nextCursor = hasNext ? items.get(items.size() - 1).id : null;
+        return new ProductPage(items, nextCursor);
+    }
+
+    //Остаток горячего товара в БД отстаёт от счётчика в памяти
+    private ProductResponseDTO withLiveAmount(ProductResponseDTO product) {
+        product.amount = hotSkuStock.currentAmount(product.id, product.amount);
+        return product;
+    }
+
     private ProductResponseDTO toDTO(Product product) {
-        return new ProductResponseDTO(
+        ProductResponseDTO productResponseDTO = new ProductResponseDTO(
                 product.getId(),
                 product.getName(),
                 new ProductResponseDTO.CategoryDTO(product.getCategory().getId(), product.getCategory().getName()),
-                product.getAmount(),
+                hotSkuStock.currentAmount(product.getId(), product.getAmount()),
                 product.getDescription(),
                 product.getPrice()
         );
+        productResponseDTO.version = product.getVersion();
+        return productResponseDTO;
     }
 }
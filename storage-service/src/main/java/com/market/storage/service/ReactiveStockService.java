@@ -0,0 +1,166 @@
+package com.market.storage.service;
+
+import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.exception.product.InsufficientStockException;
+import com.market.storage.exception.product.InvalidAmountException;
+import com.market.storage.exception.product.ProductNotFoundException;
+import com.market.storage.repository.StockSql;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Supplier;
+
+//Складские эндпоинты без блокировки event loop: короткие SQL через реактивный пул.
+//Горячие товары и профиль без реактивного пула (H2 в тестах) обслуживает ProductService на worker-потоке
+@ApplicationScoped
+public class ReactiveStockService {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveStockService.class);
+
+    private static final String PRODUCT_VIEW = """
+            select p.id, p.name, c.id as category_id, c.name as category_name,
+                   p.amount, p.description, p.price, p.version
+            from products p join categories c on c.id = p.category
+            where p.id = $1""";
+
+    @Inject
+    Instance<Pool> pool;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    ProductService productService;
+
+    @Inject
+    HotSkuStockService hotSkuStock;
+
+    @Inject
+    ProductCache productCache;
+
+    @Inject
+    ReservationEngine reservationEngine;
+
+    public Uni<ProductResponseDTO> getProductById(Long id) {
+        if(!reactive(id)) {
+            return blocking(() -> productService.getProductById(id));
+        }
+        ProductResponseDTO cached = productCache.getIfPresent(id);
+        ProductResponseDTO.StockDTO stock = productCache.stockIfPresent(id);
+        if(cached != null && stock != null) {
+            logger.debug("Товар ID {} найден в кэше", id);
+            return Uni.createFrom().item(productCache.withStock(cached, stock.amount(), stock.version()));
+        }
+        long generation = productCache.generation(id);
+        return pool.get().preparedQuery(PRODUCT_VIEW).execute(Tuple.of(id))
+                .map(rows -> {
+                    if(rows.size() == 0) {
+                        logger.error("Товар с ID {} не найден", id);
+                        throw new ProductNotFoundException(id);
+                    }
+                    ProductResponseDTO product = toView(rows.iterator().next());
+                    productCache.put(product, generation);
+                    return product;
+                });
+    }
+
+    public Uni<Boolean> checkStock(Long id, int amount) {
+        if(!reactive(id)) {
+            return blocking(() -> productService.checkStock(id, amount));
+        }
+        return pool.get().preparedQuery(StockSql.HAS_STOCK).execute(Tuple.of(id, amount))
+                .map(rows -> rows.size() > 0);
+    }
+
+    public Uni<Void> orderProduct(Long id, int amount) {
+        if(!reactive(id)) {
+            return blocking(() -> {
+                productService.orderProduct(id, amount);
+                return null;
+            });
+        }
+        if(amount<1) {
+            logger.error("Некорректное количество товара для заказа: {}", amount);
+            return Uni.createFrom().failure(new InvalidAmountException(amount));
+        }
+        if(reservationEngine.isEnabled()) {
+            return Uni.createFrom().completionStage(() -> reservationEngine.reserve(id, amount))
+                    .invoke(() -> logger.info("Заказ товара с ID {} выполнен, списано: {}", id, amount));
+        }
+        return pool.get().preparedQuery(StockSql.DECREMENT_STOCK).execute(Tuple.of(id, amount))
+                .flatMap(result -> result.rowCount() == 0
+                        ? stockFailure(id, amount)
+                        : Uni.createFrom().voidItem())
+                .invoke(() -> {
+                    productCache.invalidateAmount(id);
+                    logger.info("Заказ товара с ID {} выполнен, списано: {}", id, amount);
+                });
+    }
+
+    public Uni<Void> orderProductCancel(Long id, int amount) {
+        if(!reactive(id)) {
+            return blocking(() -> {
+                productService.orderProductCancel(id, amount);
+                return null;
+            });
+        }
+        if(amount<1) {
+            logger.error("Некорректное количество товара для возврата: {}", amount);
+            return Uni.createFrom().failure(new InvalidAmountException(amount));
+        }
+        return pool.get().preparedQuery(StockSql.INCREMENT_STOCK).execute(Tuple.of(id, amount))
+                .map(result -> {
+                    if(result.rowCount() == 0) {
+                        logger.error("Товар с ID {} не найден при отмене заказа", id);
+                        throw new ProductNotFoundException(id);
+                    }
+                    productCache.invalidateAmount(id);
+                    logger.info("Отмена заказа товара с ID {} выполнена, возвращено: {}", id, amount);
+                    return null;
+                });
+    }
+
+    //Остаток горячего товара живет в памяти, его счетчик загружается блокирующим запросом
+    private boolean reactive(Long id) {
+        return pool.isResolvable() && !hotSkuStock.isHot(id);
+    }
+
+    private Uni<Void> stockFailure(Long id, int amount) {
+        return pool.get().preparedQuery(StockSql.FIND_AMOUNT).execute(Tuple.of(id))
+                .map(rows -> {
+                    if(rows.size() == 0) {
+                        logger.error("Товар с ID {} не найден при оформлении заказа", id);
+                        throw new ProductNotFoundException(id);
+                    }
+                    int available = rows.iterator().next().getInteger("amount");
+                    logger.error("Недостаточно товара на складе. ID: {}, доступно: {}, запрошено: {}",
+                            id, available, amount);
+                    throw new InsufficientStockException(id, available, amount);
+                });
+    }
+
+    //Контекст запроса переносится на worker вместе с duplicated context Vert.x
+    private <T> Uni<T> blocking(Supplier<T> action) {
+        return vertx.executeBlocking(Uni.createFrom().item(action), false);
+    }
+
+    private static ProductResponseDTO toView(Row row) {
+        ProductResponseDTO product = new ProductResponseDTO(
+                row.getLong("id"),
+                row.getString("name"),
+                row.getLong("category_id"),
+                row.getString("category_name"),
+                row.getInteger("amount"),
+                row.getString("description"),
+                row.getBigDecimal("price"));
+        product.version = row.getLong("version");
+        return product;
+    }
+}
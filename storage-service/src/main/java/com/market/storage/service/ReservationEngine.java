@@ -0,0 +1,269 @@
+package com.market.storage.service;
+
+import com.market.storage.exception.product.InsufficientStockException;
+import com.market.storage.exception.product.ProductNotFoundException;
+import com.market.storage.exception.product.ReservationTimeoutException;
+import com.market.storage.repository.ProductRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Резервы одного товара встают в очередь, единственный писатель проверяет пачку по остатку
+//в порядке поступления и списывает сумму одним UPDATE вместо очереди транзакций на блокировке строки
+@ApplicationScoped
+public class ReservationEngine {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationEngine.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Inject
+    ProductRepository productRepository;
+
+    @Inject
+    ProductCache productCache;
+
+    @ConfigProperty(name = "storage.reservation-engine.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "storage.reservation-engine.batch-window", defaultValue = "2ms")
+    Duration batchWindow;
+
+    @ConfigProperty(name = "storage.reservation-engine.max-batch-size", defaultValue = "256")
+    int maxBatchSize;
+
+    @ConfigProperty(name = "storage.reservation-engine.writer-threads", defaultValue = "4")
+    int writerThreads;
+
+    //Сколько блокирующий вызов ждет, пока его резерв попадет в пачку
+    @ConfigProperty(name = "storage.reservation-engine.wait-timeout", defaultValue = "5s")
+    Duration waitTimeout;
+
+    private final Map<Long, SkuQueue> queues = new ConcurrentHashMap<>();
+    private ScheduledExecutorService writers;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        writers = Executors.newScheduledThreadPool(writerThreads, task -> {
+            Thread thread = new Thread(task, "reservation-writer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if(enabled) {
+            logger.info("Групповое списание остатков включено: окно {}, пачка до {}", batchWindow, maxBatchSize);
+        }
+    }
+
+    //Резервы, которые писатели не успели взять, отклоняются: иначе их ожидающие повиснут навсегда
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        writers.shutdown();
+        writers.awaitTermination(5, TimeUnit.SECONDS);
+        queues.values().forEach(queue -> reject(queue, new IllegalStateException("Групповое списание остановлено")));
+        queues.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //Для тестов: пустые очереди убираются после записи пачки
+    boolean hasQueue(Long id) {
+        return queues.containsKey(id);
+    }
+
+    public CompletableFuture<Void> reserve(Long id, int amount) {
+        return enqueue(id, amount).result();
+    }
+
+    //Для блокирующих вызовов: исключение резерва пробрасывается как есть.
+    //Резерв, который за waitTimeout так и не попал в пачку, убирается из очереди и не будет списан;
+    //взятый писателем дождется своей транзакции, ее длительность ограничена таймаутом транзакции
+    public void reserveAndWait(Long id, int amount) {
+        PendingReservation reservation = enqueue(id, amount);
+        try {
+            reservation.result().get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancelOrAwait(id, reservation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelOrAwait(id, reservation);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private void cancelOrAwait(Long id, PendingReservation reservation) {
+        if(reservation.queue().pending.remove(reservation)) {
+            logger.error("Резерв товара ID {} не обработан за {}, отменен", id, waitTimeout);
+            throw new ReservationTimeoutException(id);
+        }
+        try {
+            reservation.result().join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+    }
+
+    //Добавление и удаление пустой очереди идут под compute одного ключа, поэтому резерв не попадет в уже убранную очередь
+    private PendingReservation enqueue(Long id, int amount) {
+        PendingReservation[] added = new PendingReservation[1];
+        SkuQueue queue = queues.compute(id, (key, current) -> {
+            SkuQueue target = current == null ? new SkuQueue(key) : current;
+            added[0] = new PendingReservation(target, amount, new CompletableFuture<>());
+            target.pending.add(added[0]);
+            return target;
+        });
+        if(queue.scheduled.compareAndSet(false, true)) {
+            schedule(queue, batchWindow.toNanos());
+        }
+        return added[0];
+    }
+
+    private void schedule(SkuQueue queue, long delayNanos) {
+        try {
+            writers.schedule(() -> drain(queue), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            queue.scheduled.set(false);
+            reject(queue, new IllegalStateException("Групповое списание остановлено", e));
+        }
+    }
+
+    private static void reject(SkuQueue queue, RuntimeException failure) {
+        PendingReservation next;
+        while((next = queue.pending.poll()) != null) {
+            next.result().completeExceptionally(failure);
+        }
+    }
+
+    private void drain(SkuQueue queue) {
+        List<PendingReservation> batch = new ArrayList<>();
+        PendingReservation next;
+        while(batch.size() < maxBatchSize && (next = queue.pending.poll()) != null) {
+            batch.add(next);
+        }
+        try {
+            if(!batch.isEmpty()) {
+                commit(queue.id, batch);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Не удалось списать пачку резервов товара ID {}", queue.id, e);
+            batch.forEach(reservation -> reservation.result().completeExceptionally(e));
+        } finally {
+            queue.scheduled.set(false);
+            //Пока шла запись, очередь могла снова наполниться: она и есть следующая пачка
+            if(!queue.pending.isEmpty()) {
+                if(queue.scheduled.compareAndSet(false, true)) {
+                    schedule(queue, 0);
+                }
+            } else {
+                queues.computeIfPresent(queue.id, (key, current) ->
+                        current == queue && current.pending.isEmpty() && !current.scheduled.get() ? null : current);
+            }
+        }
+    }
+
+    private void commit(Long id, List<PendingReservation> batch) {
+        int[] requested = batch.stream().mapToInt(PendingReservation::amount).toArray();
+        for(int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            BatchPlan plan = QuarkusTransaction.requiringNew().call(() -> {
+                Integer available = productRepository.findAmount(id).orElse(null);
+                if(available == null) {
+                    return null;
+                }
+                BatchPlan planned = BatchPlan.of(available, requested);
+                //Остаток мог измениться мимо очереди (пакетный резерв, PUT): тогда пересчитываем
+                if(planned.net() > 0 && productRepository.decrementStock(id, planned.net()) == 0) {
+                    return BatchPlan.RETRY;
+                }
+                return planned;
+            });
+            if(plan == null) {
+                logger.error("Товар с ID {} не найден при оформлении заказа", id);
+                batch.forEach(reservation -> reservation.result().completeExceptionally(new ProductNotFoundException(id)));
+                return;
+            }
+            if(plan != BatchPlan.RETRY) {
+                complete(id, batch, plan);
+                return;
+            }
+        }
+        throw new IllegalStateException("Остаток товара ID " + id + " меняется быстрее, чем списываются резервы");
+    }
+
+    private void complete(Long id, List<PendingReservation> batch, BatchPlan plan) {
+        if(plan.net() > 0) {
+            productCache.invalidateAmount(id);
+        }
+        logger.debug("Товар ID {}: пачка из {} резервов, списано {}", id, batch.size(), plan.net());
+        for(int i = 0; i < batch.size(); i++) {
+            PendingReservation reservation = batch.get(i);
+            if(plan.accepted()[i]) {
+                reservation.result().complete(null);
+            } else {
+                logger.error("Недостаточно товара на складе. ID: {}, доступно: {}, запрошено: {}",
+                        id, plan.availableBefore()[i], reservation.amount());
+                reservation.result().completeExceptionally(
+                        new InsufficientStockException(id, plan.availableBefore()[i], reservation.amount()));
+            }
+        }
+    }
+
+    //Проверка пачки в памяти: каждый резерв видит остаток после предыдущих принятых
+    record BatchPlan(boolean[] accepted, int[] availableBefore, int net) {
+        static final BatchPlan RETRY = new BatchPlan(new boolean[0], new int[0], 0);
+
+        static BatchPlan of(int available, int[] requested) {
+            boolean[] accepted = new boolean[requested.length];
+            int[] availableBefore = new int[requested.length];
+            int remaining = available;
+            for(int i = 0; i < requested.length; i++) {
+                availableBefore[i] = remaining;
+                if(requested[i] <= remaining) {
+                    accepted[i] = true;
+                    remaining -= requested[i];
+                }
+            }
+            return new BatchPlan(accepted, availableBefore, available - remaining);
+        }
+    }
+
+    private record PendingReservation(SkuQueue queue, int amount, CompletableFuture<Void> result) {}
+
+    private static final class SkuQueue {
+        private final Long id;
+        private final Queue<PendingReservation> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private SkuQueue(Long id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.market.storage.service;
+
+import com.market.storage.dto.StockReservationDTO;
+import com.market.storage.exception.product.ReservationReleasedException;
+import com.market.storage.model.StockReservation;
+import com.market.storage.repository.StockReservationRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//Пакетный резерв по ключу: клиент, не дождавшийся ответа, не знает, списан ли товар,
+//поэтому отмена идет по ключу и возвращает ровно то, что было списано под ним.
+//Отмена раньше резерва оставляет RELEASED, и опоздавший резерв уже ничего не спишет
+@ApplicationScoped
+public class StockReservationService {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    //Одновременные запросы с одним ключом: проигравший вставку перечитывает строку
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Inject
+    StockReservationRepository reservationRepository;
+
+    @Inject
+    ProductService productService;
+
+    @ConfigProperty(name = "storage.reservation.retention", defaultValue = "7d")
+    Duration retention;
+
+    public void reserve(String key, List<StockReservationDTO> reservations) {
+        logger.info("Резерв по ключу {}, позиций: {}", key, reservations.size());
+        withKey(() -> QuarkusTransaction.requiringNew().run(() -> {
+            StockReservation existing = reservationRepository.findForUpdate(key);
+            if(existing != null) {
+                if(existing.getStatus() == StockReservation.Status.RELEASED) {
+                    logger.warn("Резерв по ключу {} уже отменен", key);
+                    throw new ReservationReleasedException(key);
+                }
+                logger.info("Резерв по ключу {} уже выполнен, повтор пропущен", key);
+                return;
+            }
+            reservationRepository.persist(new StockReservation(key, StockReservation.Status.RESERVED, format(reservations)));
+            reservationRepository.flush();
+            productService.reserveBatch(reservations);
+        }));
+    }
+
+    public void release(String key) {
+        logger.info("Отмена резерва по ключу {}", key);
+        withKey(() -> QuarkusTransaction.requiringNew().run(() -> {
+            StockReservation existing = reservationRepository.findForUpdate(key);
+            if(existing == null) {
+                logger.info("Резерва по ключу {} нет, ключ закрыт для резерва", key);
+                reservationRepository.persist(new StockReservation(key, StockReservation.Status.RELEASED, null));
+                reservationRepository.flush();
+            }
+            else if(existing.getStatus() == StockReservation.Status.RESERVED) {
+                productService.releaseBatch(parse(existing.getLines()));
+                existing.setStatus(StockReservation.Status.RELEASED);
+            }
+            else {
+                logger.info("Резерв по ключу {} уже отменен", key);
+            }
+        }));
+    }
+
+    @Scheduled(every = "${storage.reservation.purge-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void purge() {
+        long deleted = QuarkusTransaction.requiringNew().call(() ->
+                reservationRepository.deleteOlderThan(LocalDateTime.now().minus(retention)));
+        if(deleted > 0) {
+            logger.info("Удалено старых ключей резерва: {}", deleted);
+        }
+    }
+
+    private static void withKey(Runnable call) {
+        for(int attempt = 1; ; attempt++) {
+            try {
+                call.run();
+                return;
+            } catch (RuntimeException e) {
+                if(attempt >= MAX_ATTEMPTS || !isDuplicateKey(e)) {
+                    throw e;
+                }
+                logger.info("Ключ резерва занят параллельным запросом, попытка {}", attempt + 1);
+            }
+        }
+    }
+
+    private static boolean isDuplicateKey(Throwable e) {
+        for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if(cause instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String format(List<StockReservationDTO> reservations) {
+        return reservations.stream()
+                .map(line -> line.productId + ":" + line.amount)
+                .collect(Collectors.joining(";"));
+    }
+
+    static List<StockReservationDTO> parse(String lines) {
+        return Arrays.stream(lines.split(";"))
+                .map(line -> line.split(":"))
+                .map(parts -> new StockReservationDTO(Long.parseLong(parts[0]), Integer.parseInt(parts[1])))
+                .toList();
+    }
+}
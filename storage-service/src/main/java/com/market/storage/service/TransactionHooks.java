@@ -0,0 +1,52 @@
+package com.market.storage.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.function.IntPredicate;
+
+//Действия над in-memory структурами, которые должны видеть только закоммиченные данные
+@ApplicationScoped
+public class TransactionHooks {
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    public void afterCompletion(Runnable action) {
+        register(action, status -> true, true);
+    }
+
+    //Без активной транзакции действие выполняется сразу
+    public void afterCommit(Runnable action) {
+        register(action, status -> status == Status.STATUS_COMMITTED, true);
+    }
+
+    //Компенсация изменений в памяти при откате, в том числе при сбое самого коммита.
+    //Без активной транзакции откатывать нечего
+    public void afterRollback(Runnable action) {
+        register(action, status -> status != Status.STATUS_COMMITTED, false);
+    }
+
+    private void register(Runnable action, IntPredicate onStatus, boolean runWithoutTransaction) {
+        if(transactionRegistry.getTransactionKey() == null) {
+            if(runWithoutTransaction) {
+                action.run();
+            }
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if(onStatus.test(status)) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package com.market.storage.grpc;
+
+import com.market.grpc.storage.Product;
+import com.market.grpc.storage.ProductIdRequest;
+import com.market.grpc.storage.StockBatch;
+import com.market.grpc.storage.StockLine;
+import com.market.grpc.storage.StorageGrpc;
+import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.exception.product.InsufficientStockException;
+import com.market.storage.exception.product.ProductNotFoundException;
+import com.market.storage.service.ProductService;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.quarkus.grpc.GrpcClient;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+public class StorageGrpcServiceTest {
+
+    @GrpcClient("storage")
+    StorageGrpc.StorageBlockingStub storage;
+
+    @InjectMock
+    ProductService productService;
+
+    @Test
+    public void shouldReturnProduct() {
+        ProductResponseDTO product = new ProductResponseDTO(1L, "testProduct",
+                new ProductResponseDTO.CategoryDTO(1L, "test"), 5, null, new BigDecimal("100.50"));
+        when(productService.getProductById(1L)).thenReturn(product);
+
+        Product reply = storage.getProduct(ProductIdRequest.newBuilder().setId(1L).build());
+
+        assertEquals("testProduct", reply.getName());
+        assertEquals("100.50", reply.getPrice());
+        assertEquals("", reply.getDescription());
+    }
+
+    @Test
+    public void shouldReturnNotFoundWithProductId() {
+        when(productService.getProductById(99L)).thenThrow(new ProductNotFoundException(99L));
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                () -> storage.getProduct(ProductIdRequest.newBuilder().setId(99L).build()));
+
+        assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+        assertEquals("99", e.getTrailers().get(StorageGrpcService.PRODUCT_ID));
+    }
+
+    @Test
+    public void shouldReturnFailedPreconditionOnInsufficientStock() {
+        doThrow(new InsufficientStockException(2L, 1, 5)).when(productService).reserveBatch(anyList());
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                () -> storage.reserveBatch(StockBatch.newBuilder()
+                        .addLines(StockLine.newBuilder().setProductId(2L).setAmount(5))
+                        .build()));
+
+        assertEquals(Status.Code.FAILED_PRECONDITION, e.getStatus().getCode());
+        assertEquals("2", e.getTrailers().get(StorageGrpcService.PRODUCT_ID));
+    }
+}
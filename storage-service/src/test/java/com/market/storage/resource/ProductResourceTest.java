@@ -1,24 +1,36 @@
 package com.market.storage.resource;
 
+import com.market.storage.dto.ProductImportReportDTO;
+import com.market.storage.dto.ProductQuoteDTO;
 import com.market.storage.dto.ProductRequestDTO;
 import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.dto.ProductSuggestionDTO;
+import com.market.storage.dto.StockReservationDTO;
+import com.market.storage.exception.product.InsufficientStockException;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.core.EntityTag;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import com.market.storage.service.ProductImportService;
 import com.market.storage.service.ProductService;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
 import static org.hamcrest.Matchers.*;
 
 import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 public class ProductResourceTest {
@@ -28,6 +40,9 @@ public class ProductResourceTest {
     @InjectMock
     ProductService productService;
 
+    @InjectMock
+    ProductImportService productImportService;
+
     private ProductResponseDTO productTest;
 
     @BeforeEach
@@ -54,8 +69,8 @@ public class ProductResourceTest {
         productTest2.price= BigDecimal.valueOf(200);
         productTest2.category= new ProductResponseDTO.CategoryDTO(1L, "test");
 
-        when(productService.getAllProducts())
-                .thenReturn(List.of(productTest,productTest2));
+        when(productService.getAllProducts(null, 100))
+                .thenReturn(new ProductService.ProductPage(List.of(productTest,productTest2), null));
 
 
 
@@ -83,6 +98,52 @@ public class ProductResourceTest {
 
     }
 
+    @Test
+    public void getProductShouldHonorIfNoneMatch() {
+        productTest.version = 5;
+        when(productService.getProductById(1L)).thenReturn(productTest);
+        String etag = ProductResource.productTag(productTest).toString();
+
+        given()
+                .pathParam("id", 1L)
+                .when().get("/{id}")
+                .then()
+                    .statusCode(200)
+                    .header("ETag", etag)
+                    .body("version", nullValue());
+
+        given()
+                .pathParam("id", 1L)
+                .header("If-None-Match", etag)
+                .when().get("/{id}")
+                .then()
+                    .statusCode(304)
+                    .header("ETag", etag);
+
+        given()
+                .pathParam("id", 1L)
+                .header("If-None-Match", "W/\"0\"")
+                .when().get("/{id}")
+                .then()
+                    .statusCode(200)
+                    .body("name", equalTo("testProduct"));
+    }
+
+    //Тело ответа содержит остаток, поэтому тег меняется и с версией, и с остатком горячего товара
+    @Test
+    public void etagShouldFollowVersionAndAmount() {
+        productTest.version = 5;
+        EntityTag before = ProductResource.productTag(productTest);
+        assertFalse(before.isWeak());
+
+        productTest.amount += 10;
+        EntityTag afterStock = ProductResource.productTag(productTest);
+        assertNotEquals(before, afterStock);
+
+        productTest.version += 1;
+        assertNotEquals(afterStock, ProductResource.productTag(productTest));
+    }
+
     @Test
     public void testGetProductByCategory() {
         ProductResponseDTO productTest2= new ProductResponseDTO();
@@ -93,8 +154,8 @@ public class ProductResourceTest {
         productTest2.price= BigDecimal.valueOf(200);
         productTest2.category= new ProductResponseDTO.CategoryDTO(1L, "test");
 
-        when(productService.getProductsByCategory(1L))
-                .thenReturn(List.of(productTest,productTest2));
+        when(productService.getProductsByCategory(1L, null, 100))
+                .thenReturn(new ProductService.ProductPage(List.of(productTest,productTest2), null));
 
         given()
                 .pathParam("id", 1L)
@@ -108,7 +169,7 @@ public class ProductResourceTest {
 
     @Test
     public void getProductByName() {
-        when(productService.getProductsBySimilarName("testProduct"))
+        when(productService.getProductsBySimilarName("testProduct", 20, 0))
                 .thenReturn(List.of(productTest));
 
         RestAssured.given()
@@ -120,6 +181,142 @@ public class ProductResourceTest {
                     .body("[0].name", equalTo("testProduct"));
     }
 
+    @Test
+    public void getAllProductsWithCursor() {
+        when(productService.getAllProducts(10L, 1))
+                .thenReturn(new ProductService.ProductPage(List.of(productTest), 1L));
+
+        RestAssured.given()
+                .queryParam("after", 10)
+                .queryParam("limit", 1)
+                .when().get()
+                .then()
+                    .statusCode(200)
+                    .header("X-Next-Cursor", "1")
+                    .body("size()", is(1));
+    }
+
+    @Test
+    public void getProductByNameWithPaging() {
+        when(productService.getProductsBySimilarName("test", 5, 10))
+                .thenReturn(List.of(productTest));
+
+        RestAssured.given()
+                .queryParam("name", "test")
+                .queryParam("limit", 5)
+                .queryParam("offset", 10)
+                .when().get("/search")
+                .then()
+                    .statusCode(200)
+                    .body("size()", is(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void exportNdjson() {
+        when(productService.exportProducts(any())).thenAnswer(invocation -> {
+            Consumer<ProductResponseDTO> sink = invocation.getArgument(0);
+            sink.accept(productTest);
+            sink.accept(productTest);
+            return 2;
+        });
+
+        String body = RestAssured.given()
+                .accept("application/x-ndjson")
+                .when().get("/export")
+                .then()
+                    .statusCode(200)
+                    .extract().asString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"testProduct\""));
+    }
+
+    @Test
+    public void exportCsv() {
+        productTest.description = "a, \"b\"";
+        when(productService.exportProducts(any())).thenAnswer(invocation -> {
+            Consumer<ProductResponseDTO> sink = invocation.getArgument(0);
+            sink.accept(productTest);
+            return 1;
+        });
+
+        RestAssured.given()
+                .accept("text/csv")
+                .when().get("/export")
+                .then()
+                    .statusCode(200)
+                    .body(equalTo("id,name,categoryId,category,amount,description,price\n"
+                            + "1,testProduct,1,test,1,\"a, \"\"b\"\"\",100\n"));
+    }
+
+    @Test
+    public void importCsv() {
+        ProductImportReportDTO report = new ProductImportReportDTO();
+        report.imported = 1;
+        report.failed = 1;
+        report.errors.add(new ProductImportReportDTO.RowError(3, "Категория 'x' не найдена"));
+        when(productImportService.importCsv(any())).thenReturn(report);
+
+        RestAssured.given()
+                .contentType("text/csv")
+                .body("name,category,amount,price\na,b,1,1\n")
+                .when().post("/import")
+                .then()
+                    .statusCode(200)
+                    .body("imported", is(1))
+                    .body("failed", is(1))
+                    .body("errors[0].line", is(3));
+    }
+
+    //Большое тело разрешено только импорту
+    @Test
+    public void shouldRejectLargeBodyOutsideImport() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"description\":\"" + "x".repeat(11 * 1024 * 1024) + "\"}")
+                .when().post()
+                .then()
+                    .statusCode(413);
+
+        verify(productService, never()).createProduct(any());
+    }
+
+    @Test
+    public void quote() {
+        ProductQuoteDTO quote = new ProductQuoteDTO(1L, "testProduct", BigDecimal.valueOf(100), 1);
+        quote.requested = 1;
+        quote.sufficient = true;
+        when(productService.quote(anyList())).thenReturn(List.of(quote));
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .body(List.of(new StockReservationDTO(1L, 1)))
+                .when().post("/quote")
+                .then()
+                    .statusCode(200)
+                    .body("[0].productId", equalTo(1))
+                    .body("[0].sufficient", is(true))
+                    .body("[0].description", nullValue());
+    }
+
+    @Test
+    public void autocomplete() {
+        when(productService.autocomplete("tes", 5))
+                .thenReturn(List.of(new ProductSuggestionDTO(1L, "testProduct")));
+
+        RestAssured.given()
+                .queryParam("prefix", "tes")
+                .queryParam("limit", 5)
+                .when().get("/autocomplete")
+                .then()
+                    .statusCode(200)
+                    .body("size()", is(1))
+                    .body("[0].id", equalTo(1))
+                    .body("[0].name", equalTo("testProduct"));
+    }
+
     @Test
     public void createProduct() {
         ProductRequestDTO createProductDTO = new ProductRequestDTO();
@@ -169,10 +366,10 @@ public class ProductResourceTest {
                 .when().post()
                 .then()
                 .statusCode(400)
-                .body("parameterViolations.size()", greaterThan(0))
-                .body("parameterViolations.find {it.path.contains('name')}.message",
+                .body("violations.size()", greaterThan(0))
+                .body("violations.find {it.field.contains('name')}.message",
                         equalTo("не должно быть пустым"))
-                .body("parameterViolations.find {it.path.contains('amount')}.message",
+                .body("violations.find {it.field.contains('amount')}.message",
                         equalTo("должно быть больше или равно 0"));
 
     }
@@ -224,5 +421,56 @@ public class ProductResourceTest {
                     .statusCode(200);
     }
 
+    @Test
+    public void orderProductFailureIsPropagated(){
+        doThrow(new InsufficientStockException(1L, 0, 5)).when(productService).orderProduct(eq(1L), eq(5));
+
+        given()
+                .pathParam("id", 1L)
+                .queryParam("amount", 5)
+                .when().post("/{id}/order")
+                .then()
+                    .statusCode(500);
+    }
+
+    @Test
+    public void getStock(){
+        when(productService.checkStock(1L, 3)).thenReturn(true);
+
+        given()
+                .pathParam("id", 1L)
+                .queryParam("amount", 3)
+                .when().get("/{id}/stock")
+                .then()
+                    .statusCode(200)
+                    .body(equalTo("true"));
+
+        verify(productService).checkStock(1L, 3);
+    }
+
+    @Test
+    public void reserveBatch(){
+        doNothing().when(productService).reserveBatch(anyList());
+
+        given()
+                .contentType("application/json")
+                .body(List.of(new StockReservationDTO(1L, 1), new StockReservationDTO(2L, 3)))
+                .when().post("/reserve-batch")
+                .then()
+                    .statusCode(200);
+
+        verify(productService, times(1)).reserveBatch(anyList());
+    }
+
+    @Test
+    public void reserveBatchValidation(){
+        given()
+                .contentType("application/json")
+                .body(List.of(new StockReservationDTO(1L, 0)))
+                .when().post("/reserve-batch")
+                .then()
+                    .statusCode(400);
 
+        verify(productService, never()).reserveBatch(anyList());
+    }
 }
@@ -0,0 +1,40 @@
+package com.market.storage.resource;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit5.virtual.ShouldNotPin;
+import io.quarkus.test.junit5.virtual.VirtualThreadUnit;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+
+//Запросы через Hibernate и пул соединений на виртуальном потоке не должны закреплять carrier-поток
+@QuarkusTest
+@VirtualThreadUnit
+@ShouldNotPin
+public class ProductResourceVirtualThreadTest {
+
+    @BeforeEach
+    public void setup() {
+        RestAssured.basePath = "/api/products";
+    }
+
+    @Test
+    public void pageDoesNotPin() {
+        given()
+                .queryParam("limit", 10)
+                .when().get()
+                .then()
+                    .statusCode(200);
+    }
+
+    @Test
+    public void searchDoesNotPin() {
+        given()
+                .queryParam("name", "test")
+                .when().get("/search")
+                .then()
+                    .statusCode(200);
+    }
+}
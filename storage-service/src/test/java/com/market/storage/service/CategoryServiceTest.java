@@ -9,6 +9,7 @@ import jakarta.inject.Inject;
 import com.market.storage.model.Category;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import com.market.storage.repository.CategoryRepository;
 
 import java.util.List;
@@ -25,6 +26,9 @@ public class CategoryServiceTest {
     @InjectMock
     CategoryRepository categoryRepository;
 
+    @InjectMock
+    ProductService productService;
+
     private Category categoryTest;
 
     @BeforeEach
@@ -108,6 +112,7 @@ public class CategoryServiceTest {
 
         assertNotNull(updatedCategory);
         assertEquals(updatedCategory.name, "Test NewCategory");
+        verify(productService).categoryChanged(1L);
     }
 
     @Test
@@ -120,5 +125,25 @@ public class CategoryServiceTest {
         assertThrows(CategoryNotFoundException.class, () -> categoryService.updateCategory(1L, newCategory));
     }
 
+    @Test
+    public void shouldDeleteProductsBeforeCategory() {
+        when(categoryRepository.findByIdOptional(1L)).thenReturn(Optional.of(categoryTest));
+        when(productService.deleteProductsByCategory(1L)).thenReturn(3);
+        when(categoryRepository.delete("id", 1L)).thenReturn(1L);
 
+        categoryService.deleteCategory(1L);
+
+        InOrder order = inOrder(productService, categoryRepository);
+        order.verify(productService).deleteProductsByCategory(1L);
+        order.verify(categoryRepository).delete("id", 1L);
+        verify(categoryRepository, never()).deleteById(anyLong());
+    }
+
+    @Test
+    public void deleteCategoryShouldThrowExceptionIfNotFound() {
+        when(categoryRepository.findByIdOptional(99L)).thenReturn(Optional.empty());
+
+        assertThrows(CategoryNotFoundException.class, () -> categoryService.deleteCategory(99L));
+        verify(productService, never()).deleteProductsByCategory(anyLong());
+    }
 }
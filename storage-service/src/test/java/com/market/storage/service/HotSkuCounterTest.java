@@ -0,0 +1,82 @@
+package com.market.storage.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotSkuCounterTest {
+
+    @Test
+    public void shouldReserveAndRelease() {
+        HotSkuCounter counter = new HotSkuCounter(4, 10);
+
+        assertTrue(counter.tryReserve(3));
+        counter.release(1);
+
+        assertEquals(8, counter.available());
+        assertEquals(-2, counter.drainPendingDelta());
+        assertEquals(0, counter.drainPendingDelta());
+    }
+
+    @Test
+    public void shouldReserveAcrossStripes() {
+        HotSkuCounter counter = new HotSkuCounter(4, 10);
+
+        assertTrue(counter.tryReserve(9));
+        assertEquals(1, counter.available());
+    }
+
+    @Test
+    public void shouldNotReserveMoreThanAvailable() {
+        HotSkuCounter counter = new HotSkuCounter(4, 5);
+
+        assertFalse(counter.tryReserve(6));
+        assertEquals(5, counter.available());
+        assertEquals(0, counter.drainPendingDelta());
+    }
+
+    @Test
+    public void resetShouldDropPendingDelta() {
+        HotSkuCounter counter = new HotSkuCounter(4, 5);
+        assertTrue(counter.tryReserve(2));
+
+        counter.reset(20);
+
+        assertEquals(20, counter.available());
+        assertEquals(0, counter.drainPendingDelta());
+    }
+
+    @Test
+    public void shouldNotOversellUnderContention() throws Exception {
+        HotSkuCounter counter = new HotSkuCounter(8, 10_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    int reserved = 0;
+                    while (counter.tryReserve(1)) {
+                        reserved++;
+                    }
+                    return reserved;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get();
+            }
+
+            assertEquals(10_000, total);
+            assertEquals(0, counter.available());
+            assertEquals(-10_000, counter.drainPendingDelta());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.market.storage.service;
+
+import com.market.storage.dto.ProductImportReportDTO;
+import com.market.storage.model.Category;
+import com.market.storage.repository.CategoryRepository;
+import com.market.storage.repository.ProductRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class ProductImportServiceTest {
+
+    @Inject
+    ProductImportService productImportService;
+
+    @Inject
+    ProductRepository productRepository;
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    @Inject
+    ProductNameIndex productNameIndex;
+
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        categoryId = QuarkusTransaction.requiringNew().call(() -> {
+            Category category = new Category("import-category");
+            categoryRepository.persist(category);
+            return category.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            productRepository.delete("name like ?1", "import-%");
+            categoryRepository.delete("name", "import-category");
+        });
+    }
+
+    @Test
+    public void shouldImportCsvAndReportBadRows() {
+        String csv = """
+                name,category,amount,description,price
+                import-first,import-category,5,"with, comma",10.50
+                import-unknown,missing-category,1,,1
+                import-second,import-category,2,,not-a-number
+                import-third,import-category,3,,3
+                """;
+
+        ProductImportReportDTO report = productImportService.importCsv(stream(csv));
+
+        assertEquals(2, report.imported);
+        assertEquals(2, report.failed);
+        assertEquals(List.of(3L, 4L), report.errors.stream().map(ProductImportReportDTO.RowError::line).toList());
+        assertEquals(2, productRepository.count("name like ?1", "import-%"));
+        assertEquals("with, comma", productRepository.find("name", "import-first").firstResult().getDescription());
+        assertEquals(1, productNameIndex.complete("import-th", 10).size());
+    }
+
+    @Test
+    public void shouldImportJsonLinesByCategoryId() {
+        String ndjson = "{\"name\":\"import-json\",\"categoryId\":" + categoryId + ",\"amount\":1,\"price\":2}\n"
+                + "{\"name\":\"\",\"categoryId\":" + categoryId + ",\"price\":2}\n";
+
+        ProductImportReportDTO report = productImportService.importJsonLines(stream(ndjson));
+
+        assertEquals(1, report.imported);
+        assertEquals(1, report.failed);
+        assertEquals(2L, report.errors.get(0).line());
+        assertTrue(report.errors.get(0).message().startsWith("name"));
+    }
+
+    //Строки, которые не влезут в колонки, отклоняются по одной, соседи по пакету записываются
+    @Test
+    public void shouldRejectOnlyRowsThatBreakColumnLimits() {
+        String csv = "name,category,amount,description,price\n"
+                + "import-before,import-category,1,,1\n"
+                + "import-" + "x".repeat(150) + ",import-category,1,,1\n"
+                + "import-expensive,import-category,1,,123456789.99\n"
+                + "import-fraction,import-category,1,,1.999\n"
+                + "import-after,import-category,1,,1\n";
+
+        ProductImportReportDTO report = productImportService.importCsv(stream(csv));
+
+        assertEquals(2, report.imported);
+        assertEquals(3, report.failed);
+        assertEquals(List.of(3L, 4L, 5L), report.errors.stream().map(ProductImportReportDTO.RowError::line).toList());
+        assertTrue(report.errors.get(0).message().startsWith("name"));
+        assertTrue(report.errors.get(1).message().startsWith("price"));
+        assertEquals(2, productRepository.count("name in ?1", List.of("import-before", "import-after")));
+    }
+
+    @Test
+    public void shouldParseQuotedCsvValues() {
+        assertEquals(List.of("a", "b, \"c\"", ""), ProductImportService.parseCsvLine("a,\"b, \"\"c\"\"\","));
+    }
+
+    private static ByteArrayInputStream stream(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
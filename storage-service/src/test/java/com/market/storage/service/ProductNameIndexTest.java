@@ -0,0 +1,41 @@
+package com.market.storage.service;
+
+import com.market.storage.dto.ProductSuggestionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductNameIndexTest {
+
+    @Test
+    public void shouldCompleteByCaseInsensitivePrefix() {
+        ProductNameIndex index = new ProductNameIndex();
+        index.put(1L, "Молоко");
+        index.put(2L, "молоко топлёное");
+        index.put(3L, "Мука");
+        index.put(4L, "Молоко");
+
+        List<ProductSuggestionDTO> suggestions = index.complete("МОЛ", 10);
+
+        assertEquals(List.of(1L, 4L, 2L), suggestions.stream().map(s -> s.id).toList());
+        assertEquals(1, index.complete("мол", 1).size());
+        assertTrue(index.complete("хлеб", 10).isEmpty());
+    }
+
+    @Test
+    public void shouldReplaceRenamedAndRemoveDeleted() {
+        ProductNameIndex index = new ProductNameIndex();
+        index.put(1L, "Молоко");
+        index.put(1L, "Кефир");
+
+        assertTrue(index.complete("мол", 10).isEmpty());
+        assertEquals("Кефир", index.complete("кеф", 10).get(0).name);
+
+        index.remove(1L);
+
+        assertTrue(index.complete("кеф", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+}
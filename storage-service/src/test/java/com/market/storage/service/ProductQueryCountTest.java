@@ -0,0 +1,95 @@
+package com.market.storage.service;
+
+import com.market.storage.model.Category;
+import com.market.storage.model.Product;
+import com.market.storage.repository.CategoryRepository;
+import com.market.storage.repository.ProductRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Число SQL-запросов на список не должно зависеть от числа товаров и категорий
+@QuarkusTest
+public class ProductQueryCountTest {
+
+    @Inject
+    ProductService productService;
+
+    @Inject
+    ProductRepository productRepository;
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    private Long firstCategoryId;
+
+    @BeforeEach
+    void setUp() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            for (int c = 0; c < 3; c++) {
+                Category category = new Category("count-category-" + c);
+                categoryRepository.persist(category);
+                if(firstCategoryId == null) {
+                    firstCategoryId = category.getId();
+                }
+                for (int p = 0; p < 5; p++) {
+                    productRepository.persist(new Product("count-product-" + c + "-" + p, category, 10,
+                            "description", BigDecimal.TEN));
+                }
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            productRepository.delete("name like ?1", "count-product-%");
+            categoryRepository.delete("name like ?1", "count-category-%");
+        });
+        firstCategoryId = null;
+    }
+
+    @Test
+    public void listingShouldUseSingleStatement() {
+        Statistics statistics = statistics();
+
+        assertEquals(15, productService.getAllProducts(null, 100).items().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void categoryListingShouldNotLoadCategoryPerProduct() {
+        Statistics statistics = statistics();
+
+        assertEquals(5, productService.getProductsByCategory(firstCategoryId, null, 100).items().size());
+        //Проверка существования категории + сама выборка
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void searchShouldUseSingleStatement() {
+        Statistics statistics = statistics();
+
+        assertEquals(15, productService.getProductsBySimilarName("count-product", 100, 0).size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -1,9 +1,12 @@
 package com.market.storage.service;
 
+import com.market.storage.dto.ProductQuoteDTO;
 import com.market.storage.dto.ProductRequestDTO;
 import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.dto.StockReservationDTO;
 import com.market.storage.exception.category.CategoryNotFoundException;
 import com.market.storage.exception.product.InsufficientStockException;
+import com.market.storage.exception.product.InvalidAmountException;
 import com.market.storage.exception.product.ProductNotFoundException;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
@@ -14,6 +17,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import com.market.storage.repository.CategoryRepository;
 import com.market.storage.repository.ProductRepository;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,10 +40,18 @@ public class ProductServiceTest {
     @InjectMock
     CategoryRepository categoryRepository;
 
+    @Inject
+    ProductCache productCache;
+
+    @Inject
+    HotSkuStockService hotSkuStock;
+
     private Product testProduct;
+    private ProductResponseDTO testProductView;
 
     @BeforeEach
     void setUp() {
+        productCache.invalidateAll();
         testProduct = new Product();
         testProduct.setId(1L);
         testProduct.setName("testProduct");
@@ -51,14 +63,16 @@ public class ProductServiceTest {
         oldCategory.setName("oldCategory");
         oldCategory.setId(1L);
         testProduct.setCategory(oldCategory);
+        testProductView = new ProductResponseDTO(1L, "testProduct", 1L, "oldCategory", 1,
+                "Test Product description", BigDecimal.valueOf(100.0));
 
     }
 
     @Test
     public void shouldGetAllProducts() {
-        Mockito.when(productRepository.listAll()).thenReturn(List.of(testProduct));
+        Mockito.when(productRepository.findPage(0L, 101)).thenReturn(List.of(testProductView));
 
-        List<ProductResponseDTO> products = productService.getAllProducts();
+        List<ProductResponseDTO> products = productService.getAllProducts(null, 100).items();
 
         assertNotNull(products);
         assertEquals(1, products.size());
@@ -67,6 +81,28 @@ public class ProductServiceTest {
         assertEquals(product.id, testProduct.getId());
     }
 
+    @Test
+    public void shouldReturnNextCursorWhenPageIsFull() {
+        ProductResponseDTO second = new ProductResponseDTO(2L, "second", 1L, "oldCategory", 0, null, BigDecimal.TEN);
+        Mockito.when(productRepository.findPage(0L, 2)).thenReturn(List.of(testProductView, second));
+
+        ProductService.ProductPage page = productService.getAllProducts(null, 1);
+
+        assertEquals(1, page.items().size());
+        assertEquals(1L, page.nextCursor());
+    }
+
+    @Test
+    public void shouldCapPageSize() {
+        Mockito.when(productRepository.findPage(5L, 501)).thenReturn(List.of(testProductView));
+
+        ProductService.ProductPage page = productService.getAllProducts(5L, 100_000);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+        verify(productRepository).findPage(5L, 501);
+    }
+
     @Test
     public void shouldGetProductById() {
         Mockito.when(productRepository.findByIdOptional(1L)).thenReturn(Optional.of(testProduct));
@@ -79,6 +115,71 @@ public class ProductServiceTest {
 
     }
 
+    @Test
+    public void shouldServeCachedProductWithFreshAmount() {
+        Mockito.when(productRepository.findByIdOptional(1L)).thenReturn(Optional.of(testProduct));
+        Mockito.when(productRepository.findStock(1L)).thenReturn(Optional.of(new ProductResponseDTO.StockDTO(7, 3)));
+
+        productService.getProductById(1L);
+        ProductResponseDTO cached = productService.getProductById(1L);
+
+        assertEquals("testProduct", cached.name);
+        assertEquals(1, cached.amount);
+        verify(productRepository, times(1)).findByIdOptional(1L);
+
+        Mockito.when(productRepository.decrementStock(1L, 1)).thenReturn(1);
+        productService.orderProduct(1L, 1);
+        ProductResponseDTO afterOrder = productService.getProductById(1L);
+
+        assertEquals(7, afterOrder.amount);
+        assertEquals(3, afterOrder.version);
+        verify(productRepository, times(1)).findByIdOptional(1L);
+    }
+
+    @Test
+    public void shouldReloadProductAfterUpdate() {
+        Mockito.when(productRepository.findByIdOptional(1L)).thenReturn(Optional.of(testProduct));
+        productService.getProductById(1L);
+
+        productCache.invalidate(1L);
+        productService.getProductById(1L);
+
+        verify(productRepository, times(2)).findByIdOptional(1L);
+    }
+
+    @Test
+    public void cacheShouldRejectEntryReadBeforeInvalidation() {
+        long generation = productCache.generation(1L);
+        productCache.invalidate(1L);
+
+        productCache.put(testProductView, generation);
+
+        assertNull(productCache.getIfPresent(1L));
+    }
+
+    //Переименование категории: закэшированная карточка со старым названием сбрасывается, ETag товаров меняется
+    @Test
+    public void categoryChangeShouldDropCachedCardsAndBumpVersions() {
+        productCache.put(testProductView, productCache.generation(1L));
+        when(productRepository.bumpVersionByCategory(1L)).thenReturn(1);
+
+        productService.categoryChanged(1L);
+
+        assertNull(productCache.getIfPresent(1L));
+        verify(productRepository).bumpVersionByCategory(1L);
+    }
+
+    @Test
+    public void cacheShouldKeepNewerVersion() {
+        ProductResponseDTO newer = productCache.withStock(testProductView, 5, 4);
+        productCache.put(newer, productCache.generation(1L));
+
+        productCache.put(productCache.withStock(testProductView, 9, 2), productCache.generation(1L));
+
+        assertEquals(4, productCache.getIfPresent(1L).version);
+        assertEquals(5, productCache.stockIfPresent(1L).amount());
+    }
+
     @Test
     public void shouldThrowExceptionIfProductNotFound() {
         Mockito.when(productRepository.findByIdOptional(99L)).thenReturn(Optional.empty());
@@ -86,6 +187,54 @@ public class ProductServiceTest {
         assertThrows(ProductNotFoundException.class, () -> productService.getProductById(99L));
     }
 
+    @Test
+    public void shouldSearchProductsWithCappedLimit() {
+        Mockito.when(productRepository.findBySimilarName("test", 100, 0)).thenReturn(List.of(testProductView));
+
+        List<ProductResponseDTO> products = productService.getProductsBySimilarName(" test ", 1000, -5);
+
+        assertEquals(1, products.size());
+        verify(productRepository).findBySimilarName("test", 100, 0);
+    }
+
+    @Test
+    public void shouldReturnEmptySearchForBlankName() {
+        assertTrue(productService.getProductsBySimilarName(" ", 20, 0).isEmpty());
+        verify(productRepository, never()).findBySimilarName(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldQuoteProductsInRequestOrder() {
+        when(productRepository.findQuotes(any()))
+                .thenReturn(List.of(new ProductQuoteDTO(1L, "testProduct", BigDecimal.TEN, 3)));
+
+        List<ProductQuoteDTO> quotes = productService.quote(List.of(
+                new StockReservationDTO(99L, 1),
+                new StockReservationDTO(1L, 2),
+                new StockReservationDTO(1L, 5)));
+
+        assertEquals(List.of(99L, 1L, 1L), quotes.stream().map(q -> q.productId).toList());
+        assertFalse(quotes.get(0).found);
+        assertTrue(quotes.get(1).found);
+        assertTrue(quotes.get(1).sufficient);
+        assertEquals(BigDecimal.TEN, quotes.get(1).price);
+        assertFalse(quotes.get(2).sufficient);
+        verify(productRepository, times(1)).findQuotes(any());
+    }
+
+    @Test
+    public void shouldDeleteCategoryProductsInChunks() {
+        when(productRepository.findIdsByCategory(eq(1L), anyInt()))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L))
+                .thenReturn(List.of());
+
+        assertEquals(3, productService.deleteProductsByCategory(1L));
+        verify(productRepository).deleteByIds(List.of(1L, 2L));
+        verify(productRepository).deleteByIds(List.of(3L));
+        verify(productRepository, never()).deleteById(anyLong());
+    }
+
     @Test
     public void shouldGetProductByCategoryId() {
         Category category = new Category();
@@ -95,10 +244,10 @@ public class ProductServiceTest {
         when(categoryRepository.findByIdOptional(1L))
                 .thenReturn(Optional.of(category));
 
-        when(productRepository.findByCategory(1L))
-                .thenReturn(List.of(testProduct));
+        when(productRepository.findPageByCategory(1L, 0L, 101))
+                .thenReturn(List.of(testProductView));
 
-        List<ProductResponseDTO> productResponseDTO = productService.getProductsByCategory(1L);
+        List<ProductResponseDTO> productResponseDTO = productService.getProductsByCategory(1L, null, 100).items();
 
         assertNotNull(productResponseDTO);
         assertEquals(1, productResponseDTO.size());
@@ -114,7 +263,7 @@ public class ProductServiceTest {
                 .thenReturn(Optional.empty());
 
         assertThrows(CategoryNotFoundException.class,
-                () -> productService.getProductsByCategory(1L));
+                () -> productService.getProductsByCategory(1L, null, 100));
     }
 
     @Test
@@ -240,17 +389,19 @@ public class ProductServiceTest {
 
     @Test
     public void shouldOrderProduct(){
-        when(productRepository.findByIdOptional(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStock(1L, 1)).thenReturn(1);
 
         productService.orderProduct(1L, 1);
 
-        verify(productRepository, times(1)).findByIdOptional(1L);
-        assertEquals(0, testProduct.getAmount());
+        verify(productRepository, times(1)).decrementStock(1L, 1);
+        verify(productRepository, never()).findByIdOptional(anyLong());
+        verify(productRepository, never()).findAmount(anyLong());
     }
 
     @Test
     public void orderProductShouldThrowExceptionIfProductNotFound() {
-        when(productRepository.findByIdOptional(1L)).thenReturn(Optional.empty());
+        when(productRepository.decrementStock(1L, 1)).thenReturn(0);
+        when(productRepository.findAmount(1L)).thenReturn(Optional.empty());
 
         assertThrows(ProductNotFoundException.class,
                 () -> productService.orderProduct(1L, 1));
@@ -258,10 +409,109 @@ public class ProductServiceTest {
 
     @Test
     public void orderProductShouldThrowExceptionIfLargeAmount() {
-        when(productRepository.findByIdOptional(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStock(1L, 3)).thenReturn(0);
+        when(productRepository.findAmount(1L)).thenReturn(Optional.of(1));
 
         assertThrows(InsufficientStockException.class, () -> productService.orderProduct(1L, 3));
     }
+
+    @Test
+    public void orderProductShouldThrowExceptionIfInvalidAmount() {
+        assertThrows(InvalidAmountException.class, () -> productService.orderProduct(1L, 0));
+        verify(productRepository, never()).decrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    public void shouldCancelOrderProduct() {
+        when(productRepository.incrementStock(1L, 2)).thenReturn(1);
+
+        productService.orderProductCancel(1L, 2);
+
+        verify(productRepository, times(1)).incrementStock(1L, 2);
+    }
+
+    @Test
+    public void cancelOrderProductShouldThrowExceptionIfProductNotFound() {
+        when(productRepository.incrementStock(1L, 2)).thenReturn(0);
+
+        assertThrows(ProductNotFoundException.class, () -> productService.orderProductCancel(1L, 2));
+    }
+
+    @Test
+    public void shouldOrderHotProductInMemory() {
+        when(productRepository.findAmount(42L)).thenReturn(Optional.of(2));
+
+        productService.orderProduct(42L, 2);
+
+        assertFalse(productService.checkStock(42L, 1));
+        assertThrows(InsufficientStockException.class, () -> productService.orderProduct(42L, 1));
+        productService.orderProductCancel(42L, 2);
+        assertTrue(productService.checkStock(42L, 2));
+        verify(productRepository, never()).decrementStock(eq(42L), anyInt());
+        verify(productRepository, never()).incrementStock(eq(42L), anyInt());
+    }
+
+    @Test
+    public void shouldReserveBatch() {
+        when(productRepository.decrementStock(anyLong(), anyInt())).thenReturn(1);
+
+        productService.reserveBatch(List.of(
+                new StockReservationDTO(2L, 2),
+                new StockReservationDTO(1L, 1),
+                new StockReservationDTO(2L, 1)
+        ));
+
+        InOrder inOrder = inOrder(productRepository);
+        inOrder.verify(productRepository).decrementStock(1L, 1);
+        inOrder.verify(productRepository).decrementStock(2L, 3);
+    }
+
+    @Test
+    public void reserveBatchShouldStopOnInsufficientLine() {
+        when(productRepository.decrementStock(1L, 1)).thenReturn(0);
+        when(productRepository.findAmount(1L)).thenReturn(Optional.of(0));
+
+        assertThrows(InsufficientStockException.class, () -> productService.reserveBatch(List.of(
+                new StockReservationDTO(1L, 1),
+                new StockReservationDTO(2L, 10)
+        )));
+        verify(productRepository, never()).decrementStock(eq(2L), anyInt());
+    }
+
+    @Test
+    public void reserveBatchShouldThrowExceptionIfProductNotFound() {
+        when(productRepository.decrementStock(1L, 1)).thenReturn(1);
+        when(productRepository.decrementStock(99L, 1)).thenReturn(0);
+        when(productRepository.findAmount(99L)).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFoundException.class, () -> productService.reserveBatch(List.of(
+                new StockReservationDTO(1L, 1),
+                new StockReservationDTO(99L, 1)
+        )));
+    }
+
+    @Test
+    public void reserveBatchShouldReturnHotStockOnRollback() {
+        when(productRepository.findAmount(42L)).thenReturn(Optional.of(5));
+        when(productRepository.decrementStock(99L, 1)).thenReturn(0);
+        when(productRepository.findAmount(99L)).thenReturn(Optional.empty());
+        int available = hotSkuStock.available(42L);
+
+        assertThrows(ProductNotFoundException.class, () -> productService.reserveBatch(List.of(
+                new StockReservationDTO(42L, available),
+                new StockReservationDTO(99L, 1)
+        )));
+        assertEquals(available, hotSkuStock.available(42L));
+    }
+
+    @Test
+    public void shouldReleaseBatch() {
+        when(productRepository.incrementStock(1L, 2)).thenReturn(1);
+
+        productService.releaseBatch(List.of(new StockReservationDTO(1L, 2)));
+
+        verify(productRepository, times(1)).incrementStock(1L, 2);
+    }
     /*
     @Test
     public void shouldGetProductByName() {
@@ -0,0 +1,74 @@
+package com.market.storage.service;
+
+import com.market.storage.dto.ProductRequestDTO;
+import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.model.Category;
+import com.market.storage.model.Product;
+import com.market.storage.repository.CategoryRepository;
+import com.market.storage.repository.ProductRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Версия товара не участвует в оптимистической блокировке: PUT товара, который продается, не падает
+@QuarkusTest
+public class ProductVersionTest {
+
+    @Inject
+    ProductService productService;
+
+    @Inject
+    ProductRepository productRepository;
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    private Long categoryId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            Category category = new Category("version-category");
+            categoryRepository.persist(category);
+            Product product = new Product("version-product", category, 10, "description", BigDecimal.TEN);
+            productRepository.persist(product);
+            categoryId = category.getId();
+            productId = product.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            productRepository.delete("name like ?1", "version-product%");
+            categoryRepository.delete("name", "version-category");
+        });
+    }
+
+    @Test
+    public void updateShouldSucceedWhileStockIsDecremented() {
+        long before = productRepository.findStock(productId).orElseThrow().version();
+
+        ProductResponseDTO updated = QuarkusTransaction.requiringNew().call(() -> {
+            //Карточка прочитана до списания, списание коммитится раньше PUT
+            productRepository.findById(productId);
+            QuarkusTransaction.requiringNew().run(() -> assertEquals(1, productRepository.decrementStock(productId, 1)));
+            return productService.updateProduct(productId,
+                    new ProductRequestDTO("version-product-renamed", categoryId, 5, "description", BigDecimal.ONE));
+        });
+
+        ProductResponseDTO.StockDTO stock = productRepository.findStock(productId).orElseThrow();
+        assertEquals(before + 2, stock.version());
+        assertEquals(stock.version(), updated.version);
+        assertEquals(5, stock.amount());
+        assertEquals("version-product-renamed", productService.getProductById(productId).name);
+    }
+}
@@ -0,0 +1,126 @@
+package com.market.storage.service;
+
+import com.market.storage.dto.ProductResponseDTO;
+import com.market.storage.exception.product.InsufficientStockException;
+import com.market.storage.exception.product.ProductNotFoundException;
+import com.market.storage.model.Category;
+import com.market.storage.model.Product;
+import com.market.storage.repository.CategoryRepository;
+import com.market.storage.repository.ProductRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Реактивный путь складских эндпоинтов на настоящем PostgreSQL из Dev Services; без Docker тест пропускается
+@QuarkusTest
+@TestProfile(ReactiveStockServiceTest.PostgresProfile.class)
+@Testcontainers(disabledWithoutDocker = true)
+public class ReactiveStockServiceTest {
+
+    //Пустые jdbc.url и driver снимают настройки H2 из %test, и Dev Services поднимает PostgreSQL для обоих пулов
+    public static class PostgresProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "quarkus.datasource.db-kind", "postgresql",
+                    "quarkus.datasource.jdbc.url", "",
+                    "quarkus.datasource.jdbc.driver", "",
+                    "quarkus.datasource.reactive", "true",
+                    "quarkus.datasource.devservices.enabled", "true"
+            );
+        }
+    }
+
+    @Inject
+    ReactiveStockService reactiveStockService;
+
+    @Inject
+    ProductRepository productRepository;
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    @Inject
+    ProductCache productCache;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        productCache.invalidateAll();
+        productId = QuarkusTransaction.requiringNew().call(() -> {
+            Category category = new Category("reactive-category");
+            categoryRepository.persist(category);
+            Product product = new Product("reactive-product", category, 5, "description", BigDecimal.TEN);
+            productRepository.persist(product);
+            return product.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            productRepository.delete("name", "reactive-product");
+            categoryRepository.delete("name", "reactive-category");
+        });
+    }
+
+    @Test
+    public void shouldReadProductWithVersion() {
+        ProductResponseDTO product = reactiveStockService.getProductById(productId).await().indefinitely();
+
+        assertEquals("reactive-product", product.name);
+        assertEquals(5, product.amount);
+        assertEquals(0, BigDecimal.TEN.compareTo(product.price));
+        assertNotNull(productCache.getIfPresent(productId));
+    }
+
+    @Test
+    public void shouldFailForUnknownProduct() {
+        assertThrows(ProductNotFoundException.class,
+                () -> reactiveStockService.getProductById(-1L).await().indefinitely());
+    }
+
+    @Test
+    public void shouldCheckStock() {
+        assertTrue(reactiveStockService.checkStock(productId, 5).await().indefinitely());
+        assertFalse(reactiveStockService.checkStock(productId, 6).await().indefinitely());
+    }
+
+    @Test
+    public void shouldOrderAndCancel() {
+        reactiveStockService.orderProduct(productId, 3).await().indefinitely();
+        assertEquals(2, amount());
+
+        reactiveStockService.orderProductCancel(productId, 1).await().indefinitely();
+        assertEquals(3, amount());
+    }
+
+    @Test
+    public void shouldRejectOrderAboveStock() {
+        assertThrows(InsufficientStockException.class,
+                () -> reactiveStockService.orderProduct(productId, 6).await().indefinitely());
+        assertEquals(5, amount());
+    }
+
+    @Test
+    public void shouldFailCancelForUnknownProduct() {
+        assertThrows(ProductNotFoundException.class,
+                () -> reactiveStockService.orderProductCancel(-1L, 1).await().indefinitely());
+    }
+
+    private int amount() {
+        return QuarkusTransaction.requiringNew().call(() -> productRepository.findAmount(productId).orElseThrow());
+    }
+}
@@ -0,0 +1,114 @@
+package com.market.storage.service;
+
+import com.market.storage.exception.product.InsufficientStockException;
+import com.market.storage.exception.product.ProductNotFoundException;
+import com.market.storage.exception.product.ReservationTimeoutException;
+import com.market.storage.repository.ProductRepository;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+public class ReservationEngineTest {
+    @Inject
+    ReservationEngine reservationEngine;
+
+    @InjectMock
+    ProductRepository productRepository;
+
+    @Test
+    public void planChecksReservationsInArrivalOrder() {
+        ReservationEngine.BatchPlan plan = ReservationEngine.BatchPlan.of(5, new int[]{2, 4, 3, 1});
+
+        assertArrayEquals(new boolean[]{true, false, true, false}, plan.accepted());
+        assertArrayEquals(new int[]{5, 3, 3, 0}, plan.availableBefore());
+        assertEquals(5, plan.net());
+    }
+
+    @Test
+    public void batchIsWrittenWithOneUpdate() {
+        when(productRepository.findAmount(1L)).thenReturn(Optional.of(5));
+        when(productRepository.decrementStock(1L, 4)).thenReturn(1);
+
+        CompletableFuture<Void> first = reservationEngine.reserve(1L, 2);
+        CompletableFuture<Void> second = reservationEngine.reserve(1L, 2);
+        CompletableFuture<Void> third = reservationEngine.reserve(1L, 2);
+
+        assertDoesNotThrow(first::join);
+        assertDoesNotThrow(second::join);
+        CompletionException failure = assertThrows(CompletionException.class, third::join);
+        assertInstanceOf(InsufficientStockException.class, failure.getCause());
+        verify(productRepository, times(1)).decrementStock(1L, 4);
+    }
+
+    @Test
+    public void batchIsReplannedWhenStockChangedOutsideQueue() {
+        when(productRepository.findAmount(2L)).thenReturn(Optional.of(3), Optional.of(1));
+        when(productRepository.decrementStock(2L, 3)).thenReturn(0);
+        when(productRepository.decrementStock(2L, 1)).thenReturn(1);
+
+        CompletableFuture<Void> first = reservationEngine.reserve(2L, 1);
+        CompletableFuture<Void> second = reservationEngine.reserve(2L, 2);
+
+        assertDoesNotThrow(first::join);
+        assertThrows(CompletionException.class, second::join);
+        verify(productRepository).decrementStock(2L, 1);
+    }
+
+    @Test
+    public void missingProductFailsWholeBatch() {
+        when(productRepository.findAmount(3L)).thenReturn(Optional.empty());
+
+        ProductNotFoundException failure = assertThrows(ProductNotFoundException.class,
+                () -> reservationEngine.reserveAndWait(3L, 1));
+
+        assertEquals(Long.valueOf(3L), failure.getProductId());
+        verify(productRepository, never()).decrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    public void waitingReservationIsCancelledAfterTimeout() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        when(productRepository.findAmount(4L)).thenAnswer(invocation -> {
+            writing.countDown();
+            Thread.sleep(1500);
+            return Optional.of(10);
+        });
+        when(productRepository.decrementStock(eq(4L), anyInt())).thenReturn(1);
+
+        CompletableFuture<Void> first = reservationEngine.reserve(4L, 1);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ReservationTimeoutException.class, () -> reservationEngine.reserveAndWait(4L, 2));
+        assertDoesNotThrow(first::join);
+        verify(productRepository).decrementStock(4L, 1);
+        verify(productRepository, never()).decrementStock(4L, 2);
+    }
+
+    @Test
+    public void emptyQueueIsRemovedAfterDrain() throws InterruptedException {
+        when(productRepository.findAmount(5L)).thenReturn(Optional.of(1));
+        when(productRepository.decrementStock(5L, 1)).thenReturn(1);
+
+        reservationEngine.reserveAndWait(5L, 1);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(reservationEngine.hasQueue(5L) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(reservationEngine.hasQueue(5L));
+    }
+}
@@ -0,0 +1,86 @@
+package com.market.storage.service;
+
+import com.market.storage.dto.StockReservationDTO;
+import com.market.storage.exception.product.InsufficientStockException;
+import com.market.storage.exception.product.ReservationReleasedException;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+public class StockReservationServiceTest {
+
+    @Inject
+    StockReservationService reservationService;
+
+    @InjectMock
+    ProductService productService;
+
+    private static final List<StockReservationDTO> LINES = List.of(
+            new StockReservationDTO(1L, 2),
+            new StockReservationDTO(3L, 1)
+    );
+
+    @Test
+    public void repeatedReserveWithSameKeyReservesOnce() {
+        String key = UUID.randomUUID().toString();
+
+        reservationService.reserve(key, LINES);
+        reservationService.reserve(key, LINES);
+
+        verify(productService, times(1)).reserveBatch(LINES);
+    }
+
+    @Test
+    public void releaseReturnsReservedLinesOnce() {
+        String key = UUID.randomUUID().toString();
+        reservationService.reserve(key, LINES);
+
+        reservationService.release(key);
+        reservationService.release(key);
+
+        verify(productService, times(1)).releaseBatch(argThat(lines -> lines.size() == 2
+                && lines.get(0).productId == 1L && lines.get(0).amount == 2
+                && lines.get(1).productId == 3L && lines.get(1).amount == 1));
+    }
+
+    //Клиент не дождался ответа и отменил резерв раньше, чем он дошел до склада
+    @Test
+    public void releaseBeforeReserveRejectsLateReserve() {
+        String key = UUID.randomUUID().toString();
+
+        reservationService.release(key);
+
+        assertThrows(ReservationReleasedException.class, () -> reservationService.reserve(key, LINES));
+        verify(productService, never()).reserveBatch(anyList());
+        verify(productService, never()).releaseBatch(anyList());
+    }
+
+    @Test
+    public void failedReserveLeavesNothingToRelease() {
+        String key = UUID.randomUUID().toString();
+        doThrow(new InsufficientStockException(1L, 0, 2)).when(productService).reserveBatch(anyList());
+
+        assertThrows(InsufficientStockException.class, () -> reservationService.reserve(key, LINES));
+        reservationService.release(key);
+
+        verify(productService, never()).releaseBatch(anyList());
+    }
+
+    @Test
+    public void linesSurviveFormatAndParse() {
+        List<StockReservationDTO> parsed = StockReservationService.parse(StockReservationService.format(LINES));
+
+        assertEquals(2, parsed.size());
+        assertEquals(Long.valueOf(3L), parsed.get(1).productId);
+        assertEquals(1, parsed.get(1).amount);
+    }
+}